@@ -0,0 +1,149 @@
+package io.vertx.docgen.processor.impl;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compare the JMH results of a run with a stored baseline, both in the JMH CSV format ({@code -rf csv}).
+ * <p/>
+ * The comparison fails when a score is slower than the baseline by more than the threshold, the scores of the
+ * throughput benchmarks are higher when faster and the other scores are lower when faster. The comparison also fails
+ * when the baseline does not exist, the results are stored as the baseline only when recording is requested.
+ * <p/>
+ * Usage: {@code BaselineComparison <results> <baseline> <threshold> [record]}, e.g {@code 0.10} for 10%, with
+ * {@code record} set to {@code true} to store the results as the baseline instead of comparing them.
+ */
+public class BaselineComparison {
+
+  public static void main(String[] args) throws Exception {
+    if (args.length != 3 && args.length != 4) {
+      throw new IllegalArgumentException("Usage: BaselineComparison <results> <baseline> <threshold> [record]");
+    }
+    Path results = Paths.get(args[0]);
+    Path baseline = Paths.get(args[1]);
+    double threshold = Double.parseDouble(args[2]);
+    if (args.length == 4 && Boolean.parseBoolean(args[3])) {
+      Path dir = baseline.toAbsolutePath().getParent();
+      if (dir != null) {
+        Files.createDirectories(dir);
+      }
+      Files.copy(results, baseline, StandardCopyOption.REPLACE_EXISTING);
+      System.out.println("The results are stored as the baseline " + baseline);
+      return;
+    }
+    if (!Files.exists(baseline)) {
+      throw new IllegalStateException("No baseline " + baseline + ", record it with -Dbenchmark.record=true");
+    }
+    Map<String, Score> current = load(results);
+    Map<String, Score> reference = load(baseline);
+    List<String> regressions = new ArrayList<>();
+    for (Map.Entry<String, Score> entry : current.entrySet()) {
+      Score score = entry.getValue();
+      Score base = reference.get(entry.getKey());
+      if (base == null) {
+        System.out.printf("%-80s %14.3f %-8s (new)%n", entry.getKey(), score.value, score.unit);
+        continue;
+      }
+      if (!base.unit.equals(score.unit)) {
+        throw new IllegalStateException("Benchmark " + entry.getKey() + " unit changed from " + base.unit + " to " +
+          score.unit + ", the baseline must be updated");
+      }
+      // Positive when slower
+      double change = score.throughput ? (base.value - score.value) / base.value : (score.value - base.value) / base.value;
+      System.out.printf("%-80s %14.3f %-8s %+7.1f%%%n", entry.getKey(), score.value, score.unit, -100 * change);
+      if (change > threshold) {
+        regressions.add(entry.getKey());
+      }
+    }
+    if (!regressions.isEmpty()) {
+      throw new IllegalStateException(regressions.size() + " benchmarks are slower than the baseline by more than " +
+        (100 * threshold) + "%: " + regressions);
+    }
+  }
+
+  private static class Score {
+
+    final double value;
+    final String unit;
+    final boolean throughput;
+
+    Score(double value, String unit, boolean throughput) {
+      this.value = value;
+      this.unit = unit;
+      this.throughput = throughput;
+    }
+  }
+
+  /**
+   * @return the scores by benchmark name and parameters
+   */
+  private static Map<String, Score> load(Path file) throws IOException {
+    List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+    Map<String, Score> scores = new LinkedHashMap<>();
+    if (lines.isEmpty()) {
+      return scores;
+    }
+    List<String> header = parse(lines.get(0));
+    int benchmark = header.indexOf("Benchmark");
+    int mode = header.indexOf("Mode");
+    int score = header.indexOf("Score");
+    int unit = header.indexOf("Unit");
+    for (String line : lines.subList(1, lines.size())) {
+      if (line.isEmpty()) {
+        continue;
+      }
+      List<String> row = parse(line);
+      StringBuilder key = new StringBuilder(row.get(benchmark)).append(" ").append(row.get(mode));
+      for (int i = 0;i < header.size();i++) {
+        if (header.get(i).startsWith("Param: ")) {
+          key.append(" ").append(header.get(i).substring(7)).append("=").append(row.get(i));
+        }
+      }
+      // The score uses the decimal separator of the locale of the run
+      scores.put(key.toString(), new Score(Double.parseDouble(row.get(score).replace(',', '.')), row.get(unit),
+        row.get(mode).equals("thrpt")));
+    }
+    return scores;
+  }
+
+  /**
+   * Parse a CSV line, fields can be quoted and quotes are escaped by doubling them.
+   */
+  private static List<String> parse(String line) {
+    List<String> fields = new ArrayList<>();
+    StringBuilder field = new StringBuilder();
+    boolean quoted = false;
+    for (int i = 0;i < line.length();i++) {
+      char c = line.charAt(i);
+      if (quoted) {
+        if (c == '"') {
+          if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+            field.append('"');
+            i++;
+          } else {
+            quoted = false;
+          }
+        } else {
+          field.append(c);
+        }
+      } else if (c == '"') {
+        quoted = true;
+      } else if (c == ',') {
+        fields.add(field.toString());
+        field.setLength(0);
+      } else {
+        field.append(c);
+      }
+    }
+    fields.add(field.toString());
+    return fields;
+  }
+}
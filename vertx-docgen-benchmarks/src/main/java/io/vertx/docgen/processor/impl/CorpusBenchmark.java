@@ -0,0 +1,59 @@
+package io.vertx.docgen.processor.impl;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compile a {@link SyntheticCorpus} end to end, see {@link CorpusRunner} for the per-round and memory measures.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class CorpusBenchmark {
+
+  @Param({"10", "100"})
+  public int packages;
+
+  @Param({"1", "3"})
+  public int generators;
+
+  private File dir;
+  private List<File> sources;
+
+  @Setup
+  public void setup() throws Exception {
+    SyntheticCorpus corpus = new SyntheticCorpus();
+    corpus.packages = packages;
+    dir = Files.createTempDirectory("vertx-docgen-corpus").toFile();
+    sources = corpus.write(new File(dir, "src"));
+  }
+
+  @TearDown
+  public void tearDown() throws Exception {
+    CorpusRunner.delete(dir.toPath());
+  }
+
+  @Benchmark
+  public CorpusCompilation.Result compile() throws Exception {
+    return CorpusCompilation.run(sources, new File(dir, "classes"), generators, Collections.emptyMap());
+  }
+}
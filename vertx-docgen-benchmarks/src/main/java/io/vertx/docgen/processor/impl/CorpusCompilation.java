@@ -0,0 +1,131 @@
+package io.vertx.docgen.processor.impl;
+
+import io.vertx.docgen.processor.DocGenProcessor;
+
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.element.TypeElement;
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Compile a project with {@link DocGenProcessor} in-process, like the tests of the processor do, and measure the
+ * compilation.
+ */
+class CorpusCompilation {
+
+  /**
+   * The measures of a compilation.
+   */
+  static class Result {
+
+    long wallNanos;
+    // The time spent in the processor for each round
+    final List<Long> roundNanos = new ArrayList<>();
+    // Allocated by the compiler thread, the docgen.parallelism workers are not accounted
+    long allocatedBytes;
+    long peakHeapBytes;
+
+    @Override
+    public String toString() {
+      StringBuilder buffer = new StringBuilder();
+      buffer.append(String.format("wall %.1f ms, rounds [", wallNanos / 1e6));
+      for (int i = 0;i < roundNanos.size();i++) {
+        buffer.append(i > 0 ? ", " : "").append(String.format("%.1f", roundNanos.get(i) / 1e6));
+      }
+      buffer.append(String.format("] ms, allocated %.1f MB, peak heap %.1f MB", allocatedBytes / 1e6, peakHeapBytes / 1e6));
+      return buffer.toString();
+    }
+  }
+
+  /**
+   * Compile the sources.
+   *
+   * @param sources the source files
+   * @param classOutput the class output dir
+   * @param generators the number of generators, named {@code java}, {@code java1}, ...
+   * @param options the processor options
+   * @return the measures
+   */
+  static Result run(List<File> sources, File classOutput, int generators, Map<String, String> options) throws IOException {
+    Result result = new Result();
+    DocGenerator[] docGenerators = new DocGenerator[generators];
+    for (int i = 0;i < generators;i++) {
+      String name = i == 0 ? "java" : "java" + i;
+      docGenerators[i] = new JavaDocGenerator() {
+        @Override
+        public String getName() {
+          return name;
+        }
+      };
+    }
+    DocGenProcessor processor = new DocGenProcessor(docGenerators) {
+      @Override
+      public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        long start = System.nanoTime();
+        try {
+          return super.process(annotations, roundEnv);
+        } finally {
+          result.roundNanos.add(System.nanoTime() - start);
+        }
+      }
+    };
+    JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+    DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+    if (!classOutput.isDirectory() && !classOutput.mkdirs()) {
+      throw new IOException("Could not create " + classOutput);
+    }
+    try (StandardJavaFileManager fileManager = compiler.getStandardFileManager(diagnostics, Locale.ENGLISH, StandardCharsets.UTF_8)) {
+      fileManager.setLocation(StandardLocation.CLASS_OUTPUT, Collections.singletonList(classOutput));
+      List<String> args = new ArrayList<>();
+      options.forEach((name, value) -> args.add("-A" + name + "=" + value));
+      JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager, diagnostics, args, null,
+        fileManager.getJavaFileObjectsFromFiles(sources));
+      task.setLocale(Locale.ENGLISH);
+      task.setProcessors(Collections.singletonList(processor));
+      System.gc();
+      List<MemoryPoolMXBean> heapPools = new ArrayList<>();
+      for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+        if (pool.getType() == MemoryType.HEAP) {
+          pool.resetPeakUsage();
+          heapPools.add(pool);
+        }
+      }
+      com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+      long threadId = Thread.currentThread().getId();
+      long allocated = threads.getThreadAllocatedBytes(threadId);
+      long start = System.nanoTime();
+      boolean success = task.call();
+      result.wallNanos = System.nanoTime() - start;
+      result.allocatedBytes = threads.getThreadAllocatedBytes(threadId) - allocated;
+      for (MemoryPoolMXBean pool : heapPools) {
+        // The pools do not peak at the same time, the sum is an upper bound
+        result.peakHeapBytes += pool.getPeakUsage().getUsed();
+      }
+      if (!success || !processor.failures.isEmpty()) {
+        StringBuilder buffer = new StringBuilder("Could not compile:\n");
+        for (Diagnostic<?> diagnostic : diagnostics.getDiagnostics()) {
+          buffer.append(diagnostic).append("\n");
+        }
+        throw new IllegalStateException(buffer.toString());
+      }
+    }
+    return result;
+  }
+}
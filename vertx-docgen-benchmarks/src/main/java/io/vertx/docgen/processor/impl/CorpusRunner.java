@@ -0,0 +1,110 @@
+package io.vertx.docgen.processor.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Generate a {@link SyntheticCorpus} and compile it several times, the measures of each compilation are printed.
+ * <p/>
+ * Usage: {@code CorpusRunner [--packages=10] [--depth=2] [--fanout=3] [--links=10] [--examples=3] [--overloads=4]
+ * [--statements=10] [--generators=1] [--warmup=2] [--iterations=5] [-Aname=value ...]}, the {@code -A} arguments are
+ * passed to the processor, e.g {@code -Adocgen.parallelism=4}.
+ */
+public class CorpusRunner {
+
+  public static void main(String[] args) throws Exception {
+    SyntheticCorpus corpus = new SyntheticCorpus();
+    int generators = 1;
+    int warmup = 2;
+    int iterations = 5;
+    Map<String, String> options = new LinkedHashMap<>();
+    for (String arg : args) {
+      if (arg.startsWith("-A")) {
+        int idx = arg.indexOf('=');
+        options.put(arg.substring(2, idx), arg.substring(idx + 1));
+        continue;
+      }
+      int idx = arg.indexOf('=');
+      if (!arg.startsWith("--") || idx == -1) {
+        throw new IllegalArgumentException("Invalid argument " + arg);
+      }
+      String name = arg.substring(2, idx);
+      int value = Integer.parseInt(arg.substring(idx + 1));
+      switch (name) {
+        case "packages":
+          corpus.packages = value;
+          break;
+        case "depth":
+          corpus.depth = value;
+          break;
+        case "fanout":
+          corpus.fanout = value;
+          break;
+        case "links":
+          corpus.links = value;
+          break;
+        case "examples":
+          corpus.examples = value;
+          break;
+        case "overloads":
+          corpus.overloads = value;
+          break;
+        case "statements":
+          corpus.statements = value;
+          break;
+        case "generators":
+          generators = value;
+          break;
+        case "warmup":
+          warmup = value;
+          break;
+        case "iterations":
+          iterations = value;
+          break;
+        default:
+          throw new IllegalArgumentException("Invalid argument " + arg);
+      }
+    }
+    Path dir = Files.createTempDirectory("vertx-docgen-corpus");
+    try {
+      List<File> sources = corpus.write(dir.resolve("src").toFile());
+      System.out.println("corpus: " + corpus + " generators=" + generators + " (" + sources.size() + " files)");
+      List<Long> walls = new ArrayList<>();
+      for (int i = -warmup;i < iterations;i++) {
+        File output = dir.resolve("out" + i).toFile();
+        Map<String, String> runOptions = new LinkedHashMap<>(options);
+        runOptions.putIfAbsent("docgen.output", new File(output, "$lang").getAbsolutePath());
+        CorpusCompilation.Result result = CorpusCompilation.run(sources, new File(output, "classes"), generators, runOptions);
+        System.out.println((i < 0 ? "warmup " : "iteration ") + (i < 0 ? i + warmup : i) + ": " + result);
+        if (i >= 0) {
+          walls.add(result.wallNanos);
+        }
+        delete(output.toPath());
+      }
+      if (!walls.isEmpty()) {
+        walls.sort(null);
+        System.out.println(String.format("median wall %.1f ms", walls.get(walls.size() / 2) / 1e6));
+      }
+    } finally {
+      delete(dir);
+    }
+  }
+
+  static void delete(Path dir) throws IOException {
+    if (Files.exists(dir)) {
+      try (Stream<Path> paths = Files.walk(dir)) {
+        for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+          Files.delete(path);
+        }
+      }
+    }
+  }
+}
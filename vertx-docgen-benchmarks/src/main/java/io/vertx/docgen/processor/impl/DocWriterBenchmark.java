@@ -0,0 +1,98 @@
+package io.vertx.docgen.processor.impl;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write and render multi-megabyte documents with {@link DocWriter}. The {@link #writePerChar()} benchmark writes one
+ * char at a time, like the writer did before the bulk copies, as a reference for the other benchmarks.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DocWriterBenchmark {
+
+  /**
+   * The document size in chars.
+   */
+  @Param({"1048576", "8388608"})
+  public int size;
+
+  private String doc;
+  private List<String> lines;
+
+  @Setup
+  public void setup() {
+    StringBuilder buffer = new StringBuilder(size + 128);
+    lines = new ArrayList<>();
+    for (int i = 0;buffer.length() < size;i++) {
+      // Javadoc text, the lines after the first one start with a space
+      String line = (i == 0 ? "" : " ") + "Line " + i + " of the {@link io.vertx.core.Vertx} documentation with `code` and text\n";
+      lines.add(line);
+      buffer.append(line);
+    }
+    doc = buffer.toString();
+  }
+
+  @Benchmark
+  public String writeComment() {
+    DocWriter writer = new DocWriter();
+    for (String line : lines) {
+      writer.write(line);
+    }
+    return writer.render();
+  }
+
+  @Benchmark
+  public String writeLiteral() {
+    DocWriter writer = new DocWriter(true);
+    for (String line : lines) {
+      writer.write(line);
+    }
+    return writer.render();
+  }
+
+  @Benchmark
+  public String writeDocument() {
+    DocWriter writer = new DocWriter();
+    writer.write(doc);
+    return writer.render();
+  }
+
+  @Benchmark
+  public String writePerChar() {
+    DocWriter writer = new DocWriter();
+    for (int i = 0;i < doc.length();i++) {
+      writer.write(doc.charAt(i));
+    }
+    return writer.render();
+  }
+
+  @Benchmark
+  public String writeNested() {
+    // Included documents and links render nested writers
+    DocWriter writer = new DocWriter();
+    for (String line : lines) {
+      DocWriter nested = new DocWriter();
+      nested.write(line);
+      writer.write(() -> nested);
+    }
+    return writer.render();
+  }
+}
@@ -0,0 +1,87 @@
+package io.vertx.docgen.processor.impl;
+
+import com.sun.source.util.JavacTask;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.TypeElement;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.ToolProvider;
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Analyze Java sources in memory and keep the processing environment of the analysis, so the benchmarks can call
+ * the parts of the processor backed by javac outside of a compilation.
+ */
+class JavacEnvironment {
+
+  final ProcessingEnvironment processingEnv;
+
+  // Keeps the javac context alive
+  private final JavacTask task;
+
+  private JavacEnvironment(JavacTask task, ProcessingEnvironment processingEnv) {
+    this.task = task;
+    this.processingEnv = processingEnv;
+  }
+
+  /**
+   * @param sources the sources by qualified class name
+   * @param options the processor options
+   * @return the environment
+   */
+  static JavacEnvironment analyze(Map<String, String> sources, Map<String, String> options) throws IOException {
+    List<JavaFileObject> files = new ArrayList<>();
+    sources.forEach((name, source) -> files.add(new SimpleJavaFileObject(URI.create("string:///" +
+      name.replace('.', '/') + ".java"), JavaFileObject.Kind.SOURCE) {
+      @Override
+      public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+        return source;
+      }
+    }));
+    List<String> args = new ArrayList<>();
+    options.forEach((name, value) -> args.add("-A" + name + "=" + value));
+    ProcessingEnvironment[] captured = new ProcessingEnvironment[1];
+    JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+    JavacTask task = (JavacTask) compiler.getTask(null, null, null, args, null, files);
+    task.setProcessors(Collections.singletonList(new AbstractProcessor() {
+      @Override
+      public synchronized void init(ProcessingEnvironment processingEnv) {
+        super.init(processingEnv);
+        captured[0] = processingEnv;
+      }
+      @Override
+      public Set<String> getSupportedAnnotationTypes() {
+        return Collections.singleton("*");
+      }
+      @Override
+      public Set<String> getSupportedOptions() {
+        return options.keySet();
+      }
+      @Override
+      public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+      }
+      @Override
+      public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        return false;
+      }
+    }));
+    task.analyze();
+    return new JavacEnvironment(task, captured[0]);
+  }
+
+  TypeElement typeElement(String name) {
+    return processingEnv.getElementUtils().getTypeElement(name);
+  }
+}
@@ -0,0 +1,96 @@
+package io.vertx.docgen.processor.impl;
+
+import io.vertx.docgen.processor.DocGenProcessor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Post-process rendered documents: {@link BaseProcessor#applyPostProcessors(String, String)},
+ * {@link BaseProcessor#applyVariableSubstitution(String)}, {@link PostProcessor#getBlockContent} and the
+ * {@code $lang} substitution of {@link Helper#filterLang}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PostProcessingBenchmark {
+
+  /**
+   * The number of sections of the document, each section has text, variables and two language blocks.
+   */
+  @Param({"100", "1000"})
+  public int sections;
+
+  private BaseProcessor processor;
+  private Helper helper;
+  private String doc;
+  private List<String> block;
+
+  @Setup
+  public void setup() throws Exception {
+    Map<String, String> options = new HashMap<>();
+    options.put("version", "4.0.0");
+    options.put("project", "vertx-docgen");
+    JavacEnvironment env = JavacEnvironment.analyze(Collections.singletonMap("bench.Empty",
+      "package bench; public class Empty {}"), options);
+    processor = new DocGenProcessor(new JavaDocGenerator());
+    processor.init(env.processingEnv);
+    helper = new Helper(env.processingEnv, new SourceCache(0));
+    StringBuilder buffer = new StringBuilder();
+    for (int i = 0;i < sections;i++) {
+      buffer.append("== Section ").append(i).append("\n\n");
+      buffer.append("The ${project} ${version} documentation for $lang, `\\${escaped}` is kept as is.\n\n");
+      buffer.append("[language, java]\n----\n");
+      buffer.append("[source, $lang]\n\\----\nvertx.createHttpServer().listen(8080);\n\\----\n");
+      buffer.append("----\n\n");
+      buffer.append("[language, js]\n----\nvertx.createHttpServer().listen(8080);\n----\n\n");
+    }
+    doc = buffer.toString();
+    block = new ArrayList<>();
+    block.add("----");
+    for (int i = 0;i < sections;i++) {
+      block.add("  vertx.createHttpServer().requestHandler(req -> req.response().end()).listen(" + i + ");");
+    }
+    block.add("----");
+  }
+
+  @Benchmark
+  public String applyPostProcessors() {
+    return processor.applyPostProcessors("java", doc);
+  }
+
+  @Benchmark
+  public String applyVariableSubstitution() {
+    return processor.applyVariableSubstitution(doc);
+  }
+
+  @Benchmark
+  public String getBlockContent() {
+    return PostProcessor.getBlockContent(block.iterator());
+  }
+
+  @Benchmark
+  public StringBuilder filterLang() {
+    StringBuilder buffer = new StringBuilder(doc.length());
+    helper.filterLang(doc, "java", buffer);
+    return buffer;
+  }
+}
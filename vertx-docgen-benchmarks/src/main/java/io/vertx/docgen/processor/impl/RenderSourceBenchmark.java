@@ -0,0 +1,72 @@
+package io.vertx.docgen.processor.impl;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.util.ElementFilter;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Crop the margin of the examples included in the documents with {@link JavaDocGenerator#renderSource}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RenderSourceBenchmark {
+
+  /**
+   * The number of statements of each example method.
+   */
+  @Param({"10", "1000"})
+  public int statements;
+
+  private JavaDocGenerator generator;
+  private String source;
+  private TypeElement typeElt;
+  private ExecutableElement methodElt;
+
+  @Setup
+  public void setup() throws Exception {
+    StringBuilder buffer = new StringBuilder("package bench;\n\npublic class Examples {\n");
+    for (int m = 0;m < 10;m++) {
+      buffer.append("\n  public void example").append(m).append("(StringBuilder sb) {\n");
+      for (int i = 0;i < statements;i++) {
+        buffer.append("    sb.append(\"statement ").append(i).append("\");\n");
+      }
+      buffer.append("  }\n");
+    }
+    buffer.append("}\n");
+    source = buffer.toString();
+    JavacEnvironment env = JavacEnvironment.analyze(Collections.singletonMap("bench.Examples", source),
+      Collections.emptyMap());
+    generator = new JavaDocGenerator();
+    generator.init(env.processingEnv);
+    typeElt = env.typeElement("bench.Examples");
+    methodElt = ElementFilter.methodsIn(typeElt.getEnclosedElements()).get(0);
+  }
+
+  @Benchmark
+  public String renderMethod() {
+    return generator.renderSource(methodElt, source);
+  }
+
+  @Benchmark
+  public String renderType() {
+    return generator.renderSource(typeElt, source);
+  }
+}
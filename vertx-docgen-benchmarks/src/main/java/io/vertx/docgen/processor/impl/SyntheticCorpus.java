@@ -0,0 +1,181 @@
+package io.vertx.docgen.processor.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A synthetic project documented with docgen, its size is controlled along the dimensions that make the doc builds
+ * of large stacks scale badly.
+ * <p/>
+ * Each {@code @Document} package {@code corpus.p<n>} links to the overloaded methods of its {@code Api} class,
+ * includes the examples of its {@code @Source} annotated {@code Examples} class and includes a tree of sub-packages
+ * that are not documents, e.g {@code corpus.p0.s1.s0}. Each sub-package also has links.
+ */
+class SyntheticCorpus {
+
+  /**
+   * The number of {@code @Document} packages.
+   */
+  int packages = 10;
+
+  /**
+   * The depth of the tree of included packages of a document.
+   */
+  int depth = 2;
+
+  /**
+   * The number of packages included by a package of the tree.
+   */
+  int fanout = 3;
+
+  /**
+   * The number of links of each package.
+   */
+  int links = 10;
+
+  /**
+   * The number of {@code @Source} examples included by each document.
+   */
+  int examples = 3;
+
+  /**
+   * The number of overloads of the linked methods.
+   */
+  int overloads = 4;
+
+  /**
+   * The number of statements of each example.
+   */
+  int statements = 10;
+
+  /**
+   * Write the sources of the project.
+   *
+   * @param dir the source directory
+   * @return the source files
+   */
+  List<File> write(File dir) throws IOException {
+    List<File> files = new ArrayList<>();
+    for (int p = 0;p < packages;p++) {
+      String pkg = "corpus.p" + p;
+      files.add(write(dir, pkg, "package-info", packageInfo(pkg, true)));
+      files.add(write(dir, pkg, "Api", api(pkg)));
+      files.add(write(dir, pkg, "Examples", examples(pkg)));
+      writeTree(dir, pkg, depth, files);
+    }
+    return files;
+  }
+
+  private void writeTree(File dir, String pkg, int remaining, List<File> files) throws IOException {
+    if (remaining > 0) {
+      for (int i = 0;i < fanout;i++) {
+        String sub = pkg + ".s" + i;
+        files.add(write(dir, sub, "package-info", packageInfo(sub, false)));
+        writeTree(dir, sub, remaining - 1, files);
+      }
+    }
+  }
+
+  private String packageInfo(String pkg, boolean document) {
+    // The document package of the tree
+    int sep = pkg.indexOf('.', "corpus.".length());
+    String root = sep == -1 ? pkg : pkg.substring(0, sep);
+    StringBuilder buffer = new StringBuilder("/**\n");
+    buffer.append(" * ").append(document ? "= " : "== ").append(pkg).append("\n *\n");
+    for (int l = 0;l < links;l++) {
+      int overload = l % Math.max(overloads, 1);
+      buffer.append(" * The {@link ").append(root).append(".Api#method").append(parameters(overload, false))
+        .append("} method is documented for $lang, see also {@link ").append(root).append(".Api}.\n");
+    }
+    if (document) {
+      for (int e = 0;e < examples;e++) {
+        buffer.append(" *\n * [source,$lang]\n * ----\n * {@link ").append(pkg).append(".Examples#example")
+          .append(e).append("}\n * ----\n");
+      }
+    }
+    if (remaining(pkg) > 0) {
+      for (int i = 0;i < fanout;i++) {
+        buffer.append(" *\n * {@link ").append(pkg).append(".s").append(i).append("}\n");
+      }
+    }
+    buffer.append(" */\n");
+    if (document) {
+      buffer.append("@io.vertx.docgen.Document\n");
+    }
+    buffer.append("package ").append(pkg).append(";\n");
+    return buffer.toString();
+  }
+
+  /**
+   * @return the remaining depth of the tree below a package
+   */
+  private int remaining(String pkg) {
+    int level = 0;
+    for (int i = "corpus.".length();i < pkg.length();i++) {
+      if (pkg.charAt(i) == '.') {
+        level++;
+      }
+    }
+    return depth - level;
+  }
+
+  private String api(String pkg) {
+    StringBuilder buffer = new StringBuilder("package ").append(pkg).append(";\n\npublic class Api {\n");
+    for (int o = 0;o < Math.max(overloads, 1);o++) {
+      buffer.append("\n  public void method").append(parameters(o, true)).append(" {\n  }\n");
+    }
+    buffer.append("}\n");
+    return buffer.toString();
+  }
+
+  private String examples(String pkg) {
+    StringBuilder buffer = new StringBuilder("package ").append(pkg).append(";\n\n@io.vertx.docgen.Source\npublic class Examples {\n");
+    for (int e = 0;e < examples;e++) {
+      buffer.append("\n  public void example").append(e).append("(Api api) {\n");
+      for (int s = 0;s < statements;s++) {
+        buffer.append("    api.method").append(parameters(s % Math.max(overloads, 1), false).replace("int", "" + s))
+          .append(";\n");
+      }
+      buffer.append("  }\n");
+    }
+    buffer.append("}\n");
+    return buffer.toString();
+  }
+
+  /**
+   * @return the parameters of an overload, with names for a declaration
+   */
+  private static String parameters(int count, boolean declaration) {
+    StringBuilder buffer = new StringBuilder("(");
+    for (int i = 0;i < count;i++) {
+      if (i > 0) {
+        buffer.append(declaration ? ", " : ",");
+      }
+      buffer.append("int");
+      if (declaration) {
+        buffer.append(" a").append(i);
+      }
+    }
+    return buffer.append(")").toString();
+  }
+
+  private static File write(File dir, String pkg, String name, String source) throws IOException {
+    File pkgDir = new File(dir, pkg.replace('.', File.separatorChar));
+    if (!pkgDir.isDirectory() && !pkgDir.mkdirs()) {
+      throw new IOException("Could not create " + pkgDir);
+    }
+    File file = new File(pkgDir, name + ".java");
+    Files.write(file.toPath(), source.getBytes(StandardCharsets.UTF_8));
+    return file;
+  }
+
+  @Override
+  public String toString() {
+    return "packages=" + packages + " depth=" + depth + " fanout=" + fanout + " links=" + links + " examples=" +
+      examples + " overloads=" + overloads + " statements=" + statements;
+  }
+}
@@ -16,13 +16,21 @@ import javax.lang.model.element.*;
 import javax.tools.Diagnostic;
 import javax.tools.JavaFileObject;
 import java.io.*;
+import java.lang.reflect.UndeclaredThrowableException;
 import java.net.URL;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
-import java.nio.file.Path;
+import java.nio.ByteBuffer;
+import java.nio.file.Paths;
 import java.util.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 
 /**
  * @author <a href="mailto:julien@julienviet.com">Julien Viet</a>
@@ -30,14 +38,45 @@ import java.util.regex.Pattern;
 public abstract class BaseProcessor extends AbstractProcessor {
 
   private static final String DOCGEN_OUTPUT = "docgen.output", DOCGEN_EXTENSION = "docgen.extension",
-    DOCGEN_SOURCE = "docgen.source", DOCGEN_SYNTAX = "docgen.syntax";
+    DOCGEN_SOURCE = "docgen.source", DOCGEN_SYNTAX = "docgen.syntax", DOCGEN_VERBOSE = "docgen.verbose",
+    DOCGEN_SOURCE_CACHE_SIZE = "docgen.sourceCacheSize", DOCGEN_PARALLELISM = "docgen.parallelism",
+    DOCGEN_INCREMENTAL = "docgen.incremental", DOCGEN_EARLY_FLUSH = "docgen.earlyFlush",
+    DOCGEN_MEMORY_BUDGET = "docgen.memoryBudget", DOCGEN_INCLUDE = "docgen.include", DOCGEN_EXCLUDE = "docgen.exclude",
+    DOCGEN_WARN_UNKNOWN_VARIABLES = "docgen.warnUnknownVariables", DOCGEN_POST_PROCESSOR_CACHE = "docgen.postProcessorCache",
+    DOCGEN_METRICS = "docgen.metrics";
+
+  private static final long DEFAULT_SOURCE_CACHE_SIZE = 64 * 1024 * 1024;
 
   private boolean process;
   protected DocTrees docTrees;
   protected Helper helper;
   protected List<String> sources;
+  private SourceFiles sourceFiles;
   protected Set<PostProcessor> postProcessors = new LinkedHashSet<>();
   protected Map<String, ElementResolution> resolutions = new HashMap<>();
+  private final Deque<ElementResolution> pending = new ArrayDeque<>();
+  private final Set<ElementResolution> misses = new LinkedHashSet<>();
+  private int round;
+  private boolean verbose;
+  private int parallelism;
+  private JavacBroker broker;
+  private ExecutorService workers;
+  private final Map<String, CompletableFuture<Void>> lanes = new HashMap<>();
+  private DocManifest manifest;
+  private final AtomicInteger writtenFiles = new AtomicInteger();
+  private VariableSubstitution variables;
+  private PostProcessorCache postProcessorCache;
+  private boolean warnUnknownVariables;
+  private final Set<String> unknownVariables = new ConcurrentSkipListSet<>();
+  private final AtomicInteger unchangedFiles = new AtomicInteger();
+  private boolean earlyFlush;
+  private SpillStore spillStore;
+  private int flushedDocs;
+  // A subclass overrides the string based finalization hooks
+  private boolean legacyFinalization;
+  private Metrics metrics = new Metrics(null);
+  // The id of the document being processed, links are accounted to it in the metrics
+  private String currentDoc;
   protected Syntax syntax;
   public Map<String, String> failures = new HashMap<>();
 
@@ -48,7 +87,9 @@ public abstract class BaseProcessor extends AbstractProcessor {
 
   @Override
   public Set<String> getSupportedOptions() {
-    return new HashSet<>(Arrays.asList(DOCGEN_OUTPUT, DOCGEN_EXTENSION, DOCGEN_SOURCE));
+    return new HashSet<>(Arrays.asList(DOCGEN_OUTPUT, DOCGEN_EXTENSION, DOCGEN_SOURCE, DOCGEN_SYNTAX, DOCGEN_VERBOSE,
+      DOCGEN_SOURCE_CACHE_SIZE, DOCGEN_PARALLELISM, DOCGEN_INCREMENTAL, DOCGEN_EARLY_FLUSH, DOCGEN_MEMORY_BUDGET,
+      DOCGEN_INCLUDE, DOCGEN_EXCLUDE, DOCGEN_WARN_UNKNOWN_VARIABLES, DOCGEN_POST_PROCESSOR_CACHE, DOCGEN_METRICS));
   }
 
   @Override
@@ -65,6 +106,13 @@ public abstract class BaseProcessor extends AbstractProcessor {
     return this;
   }
 
+  /**
+   * @return the post-processor used for a block, the results of pure post-processors are cached
+   */
+  private PostProcessor lookupPostProcessor(String name) {
+    return postProcessorCache.wrap(getPostProcessor(name));
+  }
+
   public synchronized PostProcessor getPostProcessor(String name) {
     for (PostProcessor pp : postProcessors) {
       if (pp.getName().equalsIgnoreCase(name)) {
@@ -89,13 +137,73 @@ public abstract class BaseProcessor extends AbstractProcessor {
     if (sourceOpt != null) {
       sources = new ArrayList<>(Arrays.asList(sourceOpt.split("\\s*,\\s*")));
     }
-    helper = new Helper(processingEnv);
+    sourceFiles = new SourceFiles(split(processingEnv.getOptions().get(DOCGEN_INCLUDE)),
+      split(processingEnv.getOptions().get(DOCGEN_EXCLUDE)));
+    String sourceCacheSizeOpt = processingEnv.getOptions().get(DOCGEN_SOURCE_CACHE_SIZE);
+    long sourceCacheSize = sourceCacheSizeOpt != null ? Long.parseLong(sourceCacheSizeOpt) : DEFAULT_SOURCE_CACHE_SIZE;
+    helper = new Helper(processingEnv, new SourceCache(sourceCacheSize));
     String syntaxOpt = processingEnv.getOptions().get(DOCGEN_SYNTAX);
     this.syntax = "markdown".equals(syntaxOpt) ? Syntax.MARKDOWN : Syntax.ASCIIDOC;
+    this.verbose = Boolean.parseBoolean(processingEnv.getOptions().get(DOCGEN_VERBOSE));
+    this.warnUnknownVariables = Boolean.parseBoolean(processingEnv.getOptions().get(DOCGEN_WARN_UNKNOWN_VARIABLES));
+    this.earlyFlush = Boolean.parseBoolean(processingEnv.getOptions().get(DOCGEN_EARLY_FLUSH));
+    String metricsOpt = processingEnv.getOptions().get(DOCGEN_METRICS);
+    this.metrics = new Metrics(metricsOpt != null ? Paths.get(metricsOpt) : null);
+    String memoryBudgetOpt = processingEnv.getOptions().get(DOCGEN_MEMORY_BUDGET);
+    if (memoryBudgetOpt != null) {
+      spillStore = new SpillStore(Long.parseLong(memoryBudgetOpt));
+    }
+    this.variables = new VariableSubstitution(processingEnv.getOptions());
+    String postProcessorCacheOpt = processingEnv.getOptions().get(DOCGEN_POST_PROCESSOR_CACHE);
+    this.postProcessorCache = new PostProcessorCache(postProcessorCacheOpt != null ? new File(postProcessorCacheOpt) : null);
+    String parallelismOpt = processingEnv.getOptions().get(DOCGEN_PARALLELISM);
+    String outputOpt = processingEnv.getOptions().get(DOCGEN_OUTPUT);
+    if (outputOpt != null && Boolean.parseBoolean(processingEnv.getOptions().get(DOCGEN_INCREMENTAL))) {
+      // The manifest is shared by the languages, it is stored in the parent dir of the first $lang segment
+      int idx = outputOpt.indexOf("$lang");
+      String base = outputOpt;
+      if (idx != -1) {
+        int sep = Math.max(outputOpt.lastIndexOf('/', idx), outputOpt.lastIndexOf(File.separatorChar, idx));
+        base = sep == -1 ? "" : sep == 0 ? outputOpt.substring(0, 1) : outputOpt.substring(0, sep);
+      }
+      manifest = new DocManifest(new File(base.isEmpty() ? "." : base, ".docgen-manifest"));
+    }
+    parallelism = parallelismOpt != null ? Integer.parseInt(parallelismOpt) : 1;
+    if (parallelism > 1) {
+      broker = JavacBroker.register(processingEnv);
+      AtomicInteger count = new AtomicInteger();
+      workers = Executors.newFixedThreadPool(parallelism, r -> {
+        Thread thread = new Thread(r, "vertx-docgen-worker-" + count.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+      });
+    }
     registerPostProcessor(new LanguageFilterPostProcessor());
+    legacyFinalization = overrides("write", DocGenerator.class, Doc.class, String.class) ||
+      overrides("postProcess", String.class, String.class) ||
+      overrides("applyPostProcessors", String.class, String.class) ||
+      overrides("applyVariableSubstitution", String.class);
     process = true;
   }
 
+  /**
+   * @return whether a subclass overrides a method of this class
+   */
+  private boolean overrides(String name, Class<?>... parameterTypes) {
+    for (Class<?> c = getClass();c != BaseProcessor.class;c = c.getSuperclass()) {
+      try {
+        c.getDeclaredMethod(name, parameterTypes);
+        return true;
+      } catch (NoSuchMethodException ignore) {
+      }
+    }
+    return false;
+  }
+
+  private static List<String> split(String opt) {
+    return opt != null ? Arrays.asList(opt.split("\\s*,\\s*")) : null;
+  }
+
   private String render(List<? extends DocTree> trees) {
     StringBuilder buffer = new StringBuilder();
     DocTreeVisitor<Void, Void> visitor = new DocTreeScanner<Void, Void>() {
@@ -109,7 +217,7 @@ public abstract class BaseProcessor extends AbstractProcessor {
     return buffer.toString();
   }
 
-  private final Map<Doc, Map<DocGenerator, DocWriter>> state = new HashMap<>();
+  private final Map<Doc, Map<DocGenerator, DocWriter>> state = new LinkedHashMap<>();
 
   @Override
   public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
@@ -119,10 +227,12 @@ public abstract class BaseProcessor extends AbstractProcessor {
     if (failures.isEmpty()) {
       try {
         if (!roundEnv.processingOver()) {
+          helper.newRound();
+          List<DocGenerator> generators = initGenerators();
           roundEnv.getElementsAnnotatedWith(Document.class).forEach(elt -> {
             try {
               PackageDoc doc = new PackageDoc((PackageElement) elt);
-              state.put(doc, handleGen(doc));
+              state.put(doc, handleGen(doc, generators));
             } catch (DocGenException e) {
               if (e.element == null) {
                 e.element = elt;
@@ -132,81 +242,70 @@ public abstract class BaseProcessor extends AbstractProcessor {
           });
 
           if (sources != null && sources.size() > 0) {
-            for (String source : sources) {
-
-              // Handle wildcards
-              List<File> files = new ArrayList<>();
-              File f = new File(source);
-              if (!f.exists()) {
-                if (f.getName().contains("*")) {
-                  StringBuilder sb = new StringBuilder();
-                  for (char c : f.getName().toCharArray()) {
-                    if (c == '*') {
-                      sb.append(".*");
-                    } else {
-                      sb.append(Matcher.quoteReplacement(Character.toString(c)));
-                    }
-                  }
-                  Pattern p = Pattern.compile(sb.toString());
-                  File parentFile = f.getParentFile();
-                  File[] children = parentFile.listFiles();
-                  if (children != null) {
-                    for (File child : children) {
-                      if (p.matcher(child.getName()).matches()) {
-                        files.add(child);
-                      }
-                    }
-                  }
-                } else {
-                  throw new FileNotFoundException("Cannot process document " + source);
-                }
-              } else {
-                files.add(f);
-              }
-              for (File file : files) {
-                if (file.isFile()) {
-                  FileDoc fileDoc = new FileDoc(file, file.getName());
-                  Map<DocGenerator, DocWriter> m = handleGen(fileDoc);
-                  state.put(fileDoc, m);
-                } else if (file.isDirectory()) {
-                  Files.walk(file.toPath())
-                    .map(Path::toFile)
-                    .filter(File::isFile).forEach(docFile -> {
-                    String relativePath = file.toPath().relativize(docFile.toPath()).toString();
-                    FileDoc fileDoc = new FileDoc(docFile, relativePath);
-                    Map<DocGenerator, DocWriter> m = handleGen(fileDoc);
-                    state.put(fileDoc, m);
-                  });
-                } else {
-                  throw new IOException("Document " + file.getAbsolutePath() + " is not a file nor a dir");
-                }
-              }
+            long start = metrics.start();
+            List<SourceFiles.Source> discovered = sourceFiles.discover(sources);
+            metrics.end(Metrics.Phase.DISCOVERY, null, null, start);
+            for (SourceFiles.Source source : discovered) {
+              FileDoc fileDoc = new FileDoc(source.file, source.relativePath, source.content);
+              Map<DocGenerator, DocWriter> m = handleGen(fileDoc, generators);
+              state.put(fileDoc, m);
             }
             sources.clear();
           }
 
-          Set<String> processed = new HashSet<>();
-          while (true) {
-            Optional<ElementResolution> opt = resolutions
-              .values()
-              .stream()
-              .filter(res -> res.elt == null && !processed.contains(res.signature))
-              .findFirst();
-            if (opt.isPresent()) {
-              ElementResolution res = opt.get();
-              processed.add(res.signature);
-              res.tryResolve();
-            } else {
-              break;
-            }
+          // Unresolved signatures can only resolve against elements brought by a new round
+          int retried = 0;
+          if (!roundEnv.getRootElements().isEmpty()) {
+            retried = misses.size();
+            pending.addAll(misses);
+            misses.clear();
+          }
+          resolvePending(retried);
+          awaitRenderings();
+          if (earlyFlush) {
+            flushResolvedDocs();
           }
         } else {
-          state.forEach((doc, m) -> {
-            m.forEach((gen, w) -> {
-              String content = postProcess(gen.getName(), w.render());
-              write(gen, doc, content);
-            });
-          });
+          shutdownWorkers();
+          try {
+            finalizeDocs(state);
+            state.clear();
+          } finally {
+            if (spillStore != null) {
+              spillStore.close();
+            }
+          }
+          for (String name : unknownVariables) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING, "Unknown variable ${" + name + "}");
+          }
+          postProcessorCache.save();
+          if (manifest != null) {
+            manifest.save();
+            if (verbose) {
+              processingEnv.getMessager().printMessage(Diagnostic.Kind.NOTE, "docgen incremental: " +
+                manifest.generated() + " generated, " + manifest.upToDate() + " up to date");
+            }
+          }
+          if (verbose) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.NOTE, "docgen output: " + writtenFiles + " files written, " +
+              unchangedFiles + " unchanged, " + flushedDocs + " documents flushed early");
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.NOTE, "docgen sources: " + sourceFiles.discovered() +
+              " files, " + sourceFiles.skipped() + " skipped");
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.NOTE, "docgen post-processor cache: " +
+              postProcessorCache.hits() + " hits, " + postProcessorCache.misses() + " misses");
+            SourceCache sourceCache = helper.sourceCache;
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.NOTE, "docgen source cache: " + sourceCache.hits() +
+              " hits, " + sourceCache.misses() + " misses, " + sourceCache.evictions() + " evictions, " +
+              sourceCache.size() + " bytes");
+            if (spillStore != null) {
+              processingEnv.getMessager().printMessage(Diagnostic.Kind.NOTE, "docgen spill store: " +
+                spillStore.spilledChunks() + " chunks spilled, " + spillStore.spilledBytes() + " bytes written, " +
+                spillStore.readBytes() + " bytes read, " + spillStore.peak() + " bytes peak in memory");
+            }
+          }
+          if (metrics.enabled()) {
+            writeMetrics();
+          }
         }
       } catch(Exception e) {
         Element reportedElt = (e instanceof DocGenException) ? ((DocGenException) e).element : null;
@@ -230,19 +329,408 @@ public abstract class BaseProcessor extends AbstractProcessor {
     return false;
   }
 
+  /**
+   * Write the {@literal docgen.metrics} report with the counters of the processor.
+   */
+  private void writeMetrics() throws IOException {
+    metrics.counter("rounds", round);
+    metrics.counter("resolvedSignatures", resolutions.size() - misses.size());
+    metrics.counter("unresolvedSignatures", misses.size());
+    metrics.counter("writtenFiles", writtenFiles.get());
+    metrics.counter("unchangedFiles", unchangedFiles.get());
+    metrics.counter("flushedDocs", flushedDocs);
+    metrics.counter("discoveredSources", sourceFiles.discovered());
+    metrics.counter("skippedSources", sourceFiles.skipped());
+    metrics.counter("postProcessorCacheHits", postProcessorCache.hits());
+    metrics.counter("postProcessorCacheMisses", postProcessorCache.misses());
+    SourceCache sourceCache = helper.sourceCache;
+    metrics.counter("sourceCacheHits", sourceCache.hits());
+    metrics.counter("sourceCacheMisses", sourceCache.misses());
+    metrics.counter("sourceCacheEvictions", sourceCache.evictions());
+    if (spillStore != null) {
+      metrics.counter("spilledChunks", spillStore.spilledChunks());
+      metrics.counter("spilledBytes", spillStore.spilledBytes());
+      metrics.counter("spillReadBytes", spillStore.readBytes());
+      metrics.counter("spillPeakBytes", spillStore.peak());
+    }
+    metrics.write();
+  }
+
+  /**
+   * Resolve each pending signature once, signatures that cannot be resolved are parked in the
+   * {@link #misses} until a later round brings new elements. Resolving an element may process an included
+   * package which can add new signatures to the queue, they are resolved in the same pass.
+   *
+   * @param retried the number of previous misses queued again for this round
+   */
+  private void resolvePending(int retried) {
+    round++;
+    int resolved = 0;
+    int unresolved = 0;
+    ElementResolution res;
+    while ((res = pending.poll()) != null) {
+      if (res.tryResolve()) {
+        resolved++;
+      } else {
+        misses.add(res);
+        unresolved++;
+      }
+    }
+    if (verbose) {
+      processingEnv.getMessager().printMessage(Diagnostic.Kind.NOTE, "docgen round " + round + ": resolved " + resolved +
+        " signatures, " + unresolved + " unresolved (" + retried + " retried)");
+    }
+  }
+
+  /**
+   * Render an example with a generator. In parallel mode the rendering is performed by a worker after the
+   * previous renderings of the same generator, otherwise it is performed immediately.
+   *
+   * @param generator the generator
+   * @param rendering the rendering
+   * @return the writer supplier of the rendered fragment
+   */
+  private DocWriter.Deferred renderExample(DocGenerator generator, String doc, Supplier<String> rendering) {
+    Supplier<String> measured = metrics.enabled() ? () -> {
+      long start = metrics.start();
+      try {
+        return rendering.get();
+      } finally {
+        metrics.end(Metrics.Phase.RENDER_SOURCE, generator.getName(), doc, start);
+      }
+    } : rendering;
+    CompletableFuture<String> future;
+    if (workers != null) {
+      CompletableFuture<Void> lane = lanes.getOrDefault(generator.getName(), CompletableFuture.completedFuture(null));
+      future = lane.thenApplyAsync(v -> measured.get(), workers);
+      lanes.put(generator.getName(), future.handle((fragment, err) -> null));
+    } else {
+      future = CompletableFuture.completedFuture(measured.get());
+    }
+    return new DocWriter.Deferred() {
+      private DocWriter writer;
+      @Override
+      public DocWriter peek() {
+        return future.isDone() ? get() : null;
+      }
+      @Override
+      public synchronized DocWriter get() {
+        if (writer == null) {
+          String fragment = broker != null ? broker.join(future) : future.join();
+          writer = new DocWriter();
+          if (fragment != null) {
+            writer.literalMode();
+            writer.append(fragment);
+            writer.commentMode();
+          }
+        }
+        return writer;
+      }
+    };
+  }
+
+  /**
+   * Wait until the workers have rendered the examples submitted so far, the lookups of the workers are performed
+   * by the compiler thread meanwhile. Rendering failures are reported when the documents are rendered.
+   */
+  private void awaitRenderings() {
+    if (workers != null && lanes.size() > 0) {
+      broker.join(CompletableFuture.allOf(lanes.values().toArray(new CompletableFuture[0])));
+      lanes.clear();
+    }
+  }
+
+  private void shutdownWorkers() {
+    if (workers != null) {
+      awaitRenderings();
+      workers.shutdown();
+      workers = null;
+      JavacBroker.unregister(processingEnv);
+    }
+  }
+
+  /**
+   * Finalize the documents whose links are all resolved and release them, so only the documents waiting for a later
+   * round are retained.
+   */
+  private void flushResolvedDocs() throws IOException, InterruptedException {
+    Map<Doc, Map<DocGenerator, DocWriter>> resolved = new LinkedHashMap<>();
+    int pendingDocs = 0;
+    int pendingLinks = 0;
+    for (Iterator<Map.Entry<Doc, Map<DocGenerator, DocWriter>>> it = state.entrySet().iterator();it.hasNext();) {
+      Map.Entry<Doc, Map<DocGenerator, DocWriter>> entry = it.next();
+      int pendingLinksOfDoc = 0;
+      for (DocWriter writer : entry.getValue().values()) {
+        pendingLinksOfDoc += writer.pending();
+      }
+      if (pendingLinksOfDoc == 0) {
+        resolved.put(entry.getKey(), entry.getValue());
+        it.remove();
+      } else {
+        pendingDocs++;
+        pendingLinks += pendingLinksOfDoc;
+      }
+    }
+    finalizeDocs(resolved);
+    flushedDocs += resolved.size();
+    if (verbose) {
+      processingEnv.getMessager().printMessage(Diagnostic.Kind.NOTE, "docgen round " + round + ": flushed " +
+        resolved.size() + " documents, " + pendingDocs + " documents waiting for " + pendingLinks + " links");
+    }
+  }
+
+  /**
+   * Record the documents in the manifest, then render, post-process and write them.
+   */
+  private void finalizeDocs(Map<Doc, Map<DocGenerator, DocWriter>> docs) throws IOException, InterruptedException {
+    if (manifest != null) {
+      docs.forEach((doc, m) -> {
+        m.keySet().forEach(gen -> manifest.record(manifestKey(doc, gen), inputs(doc, gen), false));
+      });
+    }
+    if (parallelism > 1) {
+      finalizeDocsInParallel(docs);
+    } else {
+      for (Map.Entry<Doc, Map<DocGenerator, DocWriter>> entry : docs.entrySet()) {
+        for (Map.Entry<DocGenerator, DocWriter> gen : entry.getValue().entrySet()) {
+          finalizeDoc(entry.getKey(), gen.getKey(), gen.getValue());
+        }
+      }
+    }
+  }
+
+  /**
+   * Render, post-process and write the documents on a fork-join pool. Failures are reported in order by the compiler
+   * thread, the first one stops the finalization.
+   */
+  private void finalizeDocsInParallel(Map<Doc, Map<DocGenerator, DocWriter>> docs) throws InterruptedException {
+    ForkJoinPool pool = new ForkJoinPool(parallelism);
+    try {
+      List<CompletableFuture<Void>> finalizations = new ArrayList<>();
+      docs.forEach((doc, m) -> {
+        m.forEach((gen, w) -> {
+          // The file name is resolved with javac
+          doc.resolveRelativeFileName(gen);
+          finalizations.add(CompletableFuture.runAsync(() -> {
+            try {
+              finalizeDoc(doc, gen, w);
+            } catch (IOException e) {
+              throw new UncheckedIOException(e);
+            }
+          }, pool));
+        });
+      });
+      for (CompletableFuture<Void> finalization : finalizations) {
+        try {
+          finalization.join();
+        } catch (CompletionException e) {
+          throw propagate(e.getCause());
+        }
+      }
+    } finally {
+      pool.shutdownNow();
+      pool.awaitTermination(1, TimeUnit.MINUTES);
+    }
+  }
+
+  /**
+   * Stream the rendered document through the variable substitution and the post-processors to the document writer.
+   * When a subclass overrides {@link #write}, {@link #postProcess}, {@link #applyPostProcessors} or
+   * {@link #applyVariableSubstitution} the document is rendered to a string and finalized with these methods.
+   */
+  private void finalizeDoc(Doc doc, DocGenerator generator, DocWriter writer) throws IOException {
+    if (legacyFinalization) {
+      long start = metrics.start();
+      String content = postProcess(generator.getName(), writer.render());
+      long processed = metrics.start();
+      write(generator, doc, content);
+      metrics.end(Metrics.Phase.WRITE, generator.getName(), doc.id(), processed);
+      metrics.add(Metrics.Phase.POST_PROCESS, generator.getName(), doc.id(), processed - start);
+      return;
+    }
+    long start = metrics.start();
+    DocOutput out = openWriter(generator, doc);
+    long opened = metrics.start();
+    // The rendering and the post-processing are streamed to the output, the time spent writing is measured apart
+    Metrics.TimedWriter timed = metrics.enabled() ? new Metrics.TimedWriter(out) : null;
+    try {
+      Writer pipeline = new PostProcessingWriter(generator.getName(), variables, this::unknownVariable, this::lookupPostProcessor,
+        timed != null ? timed : out);
+      writer.render(pipeline);
+      pipeline.close();
+    } catch (Throwable t) {
+      out.abort();
+      throw t;
+    }
+    long rendered = metrics.start();
+    out.commit();
+    if (timed != null) {
+      long end = metrics.start();
+      long written = (opened - start) + timed.nanos() + (end - rendered);
+      metrics.add(Metrics.Phase.POST_PROCESS, generator.getName(), doc.id(), (end - start) - written);
+      metrics.add(Metrics.Phase.WRITE, generator.getName(), doc.id(), written);
+    }
+  }
+
+  private static RuntimeException propagate(Throwable failure) {
+    if (failure instanceof RuntimeException) {
+      return (RuntimeException) failure;
+    } else if (failure instanceof Error) {
+      throw (Error) failure;
+    } else if (failure instanceof IOException) {
+      return new UncheckedIOException((IOException) failure);
+    } else {
+      return new UndeclaredThrowableException(failure);
+    }
+  }
+
   protected abstract Iterable<DocGenerator> generators();
 
-  private Map<DocGenerator, DocWriter> handleGen(Doc doc) {
-    Map<DocGenerator, DocWriter> map = new HashMap<>();
+  /**
+   * Init the generators of a round. They are initialized once before the documents of the round are handled: the
+   * workers may render examples with a generator while the next documents are handled, the generator must not be
+   * initialized again meanwhile.
+   */
+  private List<DocGenerator> initGenerators() {
+    List<DocGenerator> generators = new ArrayList<>();
     for (DocGenerator generator : generators()) {
       generator.init(processingEnv);
-      DocWriter writer = new DocWriter(doc instanceof FileDoc);
-      doc.process(generator, writer);
+      generators.add(generator);
+    }
+    return generators;
+  }
+
+  private Map<DocGenerator, DocWriter> handleGen(Doc doc, List<DocGenerator> generators) {
+    Map<DocGenerator, DocWriter> map = new LinkedHashMap<>();
+    for (DocGenerator generator : generators) {
+      if (manifest != null && isUpToDate(doc, generator)) {
+        continue;
+      }
+      DocWriter writer = new DocWriter(doc instanceof FileDoc, spillStore);
+      long start = metrics.start();
+      currentDoc = doc.id();
+      try {
+        doc.process(generator, writer);
+      } finally {
+        currentDoc = null;
+      }
+      writer.seal();
+      metrics.end(Metrics.Phase.SCAN, generator.getName(), doc.id(), start);
       map.put(generator, writer);
     }
+    if (doc instanceof FileDoc) {
+      ((FileDoc) doc).release();
+    }
     return map;
   }
 
+  private static final String OPTIONS_INPUT = "options", GENERATOR_INPUT = "generator";
+  // The hash of a source that cannot be read
+  private static final String UNREADABLE_INPUT = "-";
+
+  private String manifestKey(Doc doc, DocGenerator generator) {
+    return generator.getName() + ":" + doc.resolveRelativeFileName(generator);
+  }
+
+  /**
+   * Check the inputs recorded by the manifest for the output of a document, when none changed and the output exists
+   * the output is carried over to the next manifest.
+   *
+   * @return whether the output is up to date
+   */
+  private boolean isUpToDate(Doc doc, DocGenerator generator) {
+    String key = manifestKey(doc, generator);
+    Map<String, String> recorded = manifest.recorded(key);
+    File output = outputFile(generator, doc);
+    if (recorded == null || output == null || !output.isFile()) {
+      return false;
+    }
+    for (Map.Entry<String, String> input : recorded.entrySet()) {
+      if (!input.getValue().equals(inputHash(input.getKey(), generator))) {
+        return false;
+      }
+    }
+    manifest.record(key, recorded, true);
+    return true;
+  }
+
+  private String inputHash(String id, DocGenerator generator) {
+    switch (id) {
+      case OPTIONS_INPUT:
+        return DocManifest.hash(new TreeMap<>(processingEnv.getOptions()).toString());
+      case GENERATOR_INPUT:
+        // Upgrading the processor or the generator invalidates the outputs
+        return DocManifest.hash(generator.getName() + ":" + generator.getClass().getName() + ":" +
+          DocManifest.codeVersion(generator.getClass()) + ":" + DocManifest.codeVersion(getClass()) + ":" +
+          DocManifest.codeVersion(BaseProcessor.class));
+      default:
+        String hash = manifest.hashSource(id);
+        return hash != null ? hash : UNREADABLE_INPUT;
+    }
+  }
+
+  /**
+   * Compute the inputs of a processed document: the options, the generator, the document source and the sources of
+   * the elements it links to, included packages are followed. Elements without source are not tracked.
+   *
+   * @return the input hashes
+   */
+  private Map<String, String> inputs(Doc doc, DocGenerator generator) {
+    Set<String> ids = new LinkedHashSet<>();
+    ids.add(OPTIONS_INPUT);
+    ids.add(GENERATOR_INPUT);
+    collectSources(doc, ids, new HashSet<>());
+    Map<String, String> inputs = new LinkedHashMap<>();
+    for (String id : ids) {
+      inputs.put(id, inputHash(id, generator));
+    }
+    return inputs;
+  }
+
+  private void collectSources(Doc doc, Set<String> ids, Set<String> visited) {
+    if (doc instanceof PackageDoc) {
+      addSource(((PackageDoc) doc).elt, ids);
+    } else {
+      ids.add(DocManifest.SOURCE_PREFIX + ((FileDoc) doc).file.toURI());
+    }
+    for (String signature : doc.links) {
+      ElementResolution res = resolutions.get(signature);
+      Element elt = res != null ? res.elt : null;
+      if (elt instanceof PackageElement) {
+        PackageDoc included = includes.get(signature);
+        if (included == null) {
+          addSource(elt, ids);
+        } else if (visited.add(signature)) {
+          collectSources(included, ids, visited);
+        }
+      } else if (elt != null) {
+        addTopLevelSource(elt, ids);
+        int idx = signature.indexOf('#');
+        if (idx != -1) {
+          // A member can be inherited, the type named by the link is also an input
+          TypeElement typeElt = processingEnv.getElementUtils().getTypeElement(signature.substring(0, idx));
+          if (typeElt != null) {
+            addTopLevelSource(typeElt, ids);
+          }
+        }
+      }
+    }
+  }
+
+  private void addTopLevelSource(Element elt, Set<String> ids) {
+    while (!(elt.getEnclosingElement() instanceof PackageElement)) {
+      elt = elt.getEnclosingElement();
+    }
+    addSource(elt, ids);
+  }
+
+  private void addSource(Element elt, Set<String> ids) {
+    TreePath path = docTrees.getPath(elt);
+    if (path != null) {
+      ids.add(DocManifest.SOURCE_PREFIX + path.getCompilationUnit().getSourceFile().toUri());
+    }
+  }
+
   /**
    * @return the extension obtained from processor option {@literal docgen.extension} defaults to {@literal .adoc}
    * when absent.
@@ -296,8 +784,63 @@ public abstract class BaseProcessor extends AbstractProcessor {
 
   private final LinkedList<PackageElement> stack = new LinkedList<>();
 
+  /**
+   * The non {@code @Document} packages included by documents.
+   */
+  private final Map<String, PackageDoc> includes = new HashMap<>();
+
+  /**
+   * Render a package included by a document, the package is rendered once per generator.
+   *
+   * @param includedElt the included package
+   * @param generator the generator
+   * @return the writer of the rendered package
+   */
+  private DocWriter include(PackageElement includedElt, DocGenerator generator) {
+    PackageDoc doc = includes.computeIfAbsent(includedElt.getQualifiedName().toString(), name -> new PackageDoc(includedElt));
+    DocWriter writer = doc.rendered.get(generator.getName());
+    if (writer != null) {
+      if (includesStack(doc, generator.getName(), new HashSet<>())) {
+        throw new DocGenException(includedElt, "Circular include");
+      }
+      return writer;
+    }
+    writer = new DocWriter(false, spillStore);
+    doc.process(generator, writer);
+    writer.seal();
+    doc.rendered.put(generator.getName(), writer);
+    return writer;
+  }
+
+  /**
+   * A rendered package is not processed again, so check whether the packages it includes are being processed.
+   *
+   * @param doc the rendered package
+   * @param generatorName the generator name
+   * @param visited the visited packages
+   * @return whether the package includes a package being processed
+   */
+  private boolean includesStack(PackageDoc doc, String generatorName, Set<String> visited) {
+    if (visited.add(doc.id())) {
+      for (String link : doc.links) {
+        for (PackageElement stackElt : stack) {
+          if (stackElt.getQualifiedName().contentEquals(link)) {
+            return true;
+          }
+        }
+        PackageDoc linkDoc = includes.get(link);
+        if (linkDoc != null && linkDoc.rendered.containsKey(generatorName) && includesStack(linkDoc, generatorName, visited)) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
   public abstract class Doc {
 
+    final Set<String> links = new LinkedHashSet<>();
+
     public abstract String id();
     abstract String resolveRelativeFileName(DocGenerator generator);
 
@@ -312,114 +855,56 @@ public abstract class BaseProcessor extends AbstractProcessor {
         }
         stack.addLast(pkgElt);
 
-        String pkgSource = helper.readSource(pkgElt);
-        TreePath pkgPath = docTrees.getPath(pkgElt);
-        DocCommentTree docTree = docTrees.getDocCommentTree(pkgPath);
-        DocTreeVisitor<Void, Void> visitor = new DocTreeScanner<Void, Void>() {
-
-          private void copyContent(DocTree node) {
-            int from = (int) docTrees.getSourcePositions().getStartPosition(pkgPath.getCompilationUnit(), docTree, node);
-            int to = (int) docTrees.getSourcePositions().getEndPosition(pkgPath.getCompilationUnit(), docTree, node);
-            writer.append(pkgSource, from, to);
-          }
-
-          @Override
-          public Void visitUnknownBlockTag(UnknownBlockTagTree node, Void v) {
-            writer.append("@").append(node.getTagName()).append(" ");
-            return super.visitUnknownBlockTag(node, v);
-          }
-
-          @Override
-          public Void visitDocComment(DocCommentTree node, Void v) {
-            v = scan(node.getFirstSentence(), v);
-            List<? extends DocTree> body = node.getBody();
-            if (body.size() > 0) {
-              writer.append("\n\n");
+        List<DocNode> nodes = ((PackageDoc) this).nodes();
+        for (int i = 0; i < nodes.size(); i++) {
+          DocNode node = nodes.get(i);
+          switch (node.kind) {
+            case TEXT:
+            case ENTITY:
+            case HTML:
+              writer.append(node.value);
+              break;
+            case LITERAL:
+              writer.append("`").append(node.value).append("`");
+              break;
+            case LANG:
+              writer.append(generator.getName());
+              break;
+            case PARAGRAPH:
               writer.resetParagraph();
-              v = scan(body, v);
-            }
-            List<? extends DocTree> blockTags = node.getBlockTags();
-            if (blockTags.size() > 0) {
-              writer.append("\n");
-              v = scan(blockTags, v);
-            }
-            return v;
-          }
-
-          @Override
-          public Void visitErroneous(ErroneousTree node, Void v) {
-            return visitText(node, v);
-          }
-
-          @Override
-          public Void visitText(TextTree node, Void v) {
-            String body = node.getBody();
-            helper.filterLang(body, generator.getName(), writer);
-            return super.visitText(node, v);
-          }
-
-          /**
-           * Handles both literal and code. We generate the asciidoc output using {@literal `}.
-           */
-          @Override
-          public Void visitLiteral(LiteralTree node, Void aVoid) {
-            writer.append("`").append(node.getBody().getBody()).append("`");
-            return super.visitLiteral(node, aVoid);
-          }
-
-          @Override
-          public Void visitEntity(EntityTree node, Void aVoid) {
-            writer.append(EntityUtils.unescapeEntity(node.getName().toString()));
-            return super.visitEntity(node, aVoid);
-          }
-
-          @Override
-          public Void visitStartElement(StartElementTree node, Void v) {
-            copyContent(node);
-            return v;
-          }
-
-          @Override
-          public Void visitEndElement(EndElementTree node, Void v) {
-            writer.write("</");
-            writer.append(node.getName());
-            writer.append('>');
-            return v;
-          }
-
-          @Override
-          public Void visitLink(LinkTree node, Void v) {
-            String signature = node.getReference().getSignature();
-            String label = render(node.getLabel()).trim();
-            BaseProcessor.this.visitLink(pkgElt, label, signature, generator, writer);
-            return v;
+              break;
+            case LINK:
+              BaseProcessor.this.visitLink(pkgElt, node.label, node.value, generator, writer);
+              break;
+            case LANGUAGE_START:
+              if (!LanguageFilterPostProcessor.matches(generator.getName(), node.languages)) {
+                // The language post-processor discards the content, it does not need to be rendered
+                while (nodes.get(++i).kind != DocNode.Kind.LANGUAGE_END) {
+                }
+              }
+              break;
+            case LANGUAGE_END:
+              break;
           }
-        };
-        docTree.accept(visitor, null);
+        }
         stack.removeLast();
       } else {
         FileDoc fileDoc = (FileDoc) this;
         try {
-          String content = new String(Files.readAllBytes(fileDoc.file.toPath()), StandardCharsets.UTF_8);
-          StringBuilder intermediate = new StringBuilder(content.length());
-          helper.filterLang(content, generator.getName(), intermediate);
-          content = intermediate.toString();
-          Matcher linkMatcher = LINK_PATTERN.matcher(content);
-          int prev = 0;
-          while (linkMatcher.find()) {
-            writer.write(content, prev, linkMatcher.start() - prev);
-            String value = linkMatcher.group(1).trim();
-            Matcher methodLinkMatcher = METHOD_LINK_PATTERN.matcher(value);
-            if (methodLinkMatcher.find()) {
-              String signature = value.substring(0, methodLinkMatcher.end());
-              String label = value.substring(methodLinkMatcher.end()).trim();
-              writer.exec(() -> {
-                BaseProcessor.this.visitLink(null, label, signature, generator, writer);
-              });
-            }
-            prev = linkMatcher.end();
-          }
-          writer.append(content, prev, content.length());
+          FileDocScanner.scan(fileDoc.content(), generator.getName(), name -> getPostProcessor(name) != null,
+            new FileDocScanner.Handler() {
+              @Override
+              public void text(CharSequence text) {
+                writer.append(text);
+              }
+              @Override
+              public void link(String signature, String label) {
+                links.add(signature);
+                writer.exec(() -> {
+                  BaseProcessor.this.visitLink(null, label, signature, generator, writer);
+                });
+              }
+            });
         } catch (IOException e) {
           throw new DocGenException(e.getMessage());
         }
@@ -430,11 +915,193 @@ public abstract class BaseProcessor extends AbstractProcessor {
   class PackageDoc extends Doc {
 
     final PackageElement elt;
+    final Map<String, DocWriter> rendered = new HashMap<>();
+    private final Map<String, String> fileNames = new ConcurrentHashMap<>();
+    private List<DocNode> nodes;
 
     PackageDoc(PackageElement elt) {
       this.elt = elt;
     }
 
+    /**
+     * @return the nodes of the package comment, the comment is scanned on the first call
+     */
+    List<DocNode> nodes() {
+      if (nodes == null) {
+        nodes = scan();
+      }
+      return nodes;
+    }
+
+    private List<DocNode> scan() {
+      List<DocNode> nodes = new ArrayList<>();
+      StringBuilder text = new StringBuilder();
+      String pkgSource = helper.readSource(elt);
+      TreePath pkgPath = docTrees.getPath(elt);
+      DocCommentTree docTree = docTrees.getDocCommentTree(pkgPath);
+      DocTreeVisitor<Void, Void> visitor = new DocTreeScanner<Void, Void>() {
+
+        private void add(DocNode node) {
+          if (text.length() > 0) {
+            nodes.add(DocNode.text(text.toString()));
+            text.setLength(0);
+          }
+          nodes.add(node);
+        }
+
+        private void copyContent(DocTree node) {
+          int from = (int) docTrees.getSourcePositions().getStartPosition(pkgPath.getCompilationUnit(), docTree, node);
+          int to = (int) docTrees.getSourcePositions().getEndPosition(pkgPath.getCompilationUnit(), docTree, node);
+          add(DocNode.html(pkgSource.substring(from, to)));
+        }
+
+        @Override
+        public Void visitUnknownBlockTag(UnknownBlockTagTree node, Void v) {
+          text.append("@").append(node.getTagName()).append(" ");
+          return super.visitUnknownBlockTag(node, v);
+        }
+
+        @Override
+        public Void visitDocComment(DocCommentTree node, Void v) {
+          v = scan(node.getFirstSentence(), v);
+          List<? extends DocTree> body = node.getBody();
+          if (body.size() > 0) {
+            text.append("\n\n");
+            add(DocNode.PARAGRAPH);
+            v = scan(body, v);
+          }
+          List<? extends DocTree> blockTags = node.getBlockTags();
+          if (blockTags.size() > 0) {
+            text.append("\n");
+            v = scan(blockTags, v);
+          }
+          return v;
+        }
+
+        @Override
+        public Void visitErroneous(ErroneousTree node, Void v) {
+          return visitText(node, v);
+        }
+
+        @Override
+        public Void visitText(TextTree node, Void v) {
+          String body = node.getBody();
+          int prev = 0;
+          int start;
+          while ((start = Lexer.findLang(body, prev)) != -1) {
+            text.append(body, prev, start);
+            if (Lexer.isEscapedLang(body, start)) {
+              // \$lang
+              text.append("$lang");
+            } else {
+              add(DocNode.LANG);
+            }
+            prev = Lexer.langEnd(body, start);
+          }
+          text.append(body, prev, body.length());
+          return v;
+        }
+
+        /**
+         * Handles both literal and code. We generate the asciidoc output using {@literal `}.
+         */
+        @Override
+        public Void visitLiteral(LiteralTree node, Void v) {
+          add(DocNode.literal(node.getBody().getBody()));
+          return v;
+        }
+
+        @Override
+        public Void visitEntity(EntityTree node, Void v) {
+          add(DocNode.entity(EntityUtils.unescapeEntity(node.getName().toString())));
+          return v;
+        }
+
+        @Override
+        public Void visitStartElement(StartElementTree node, Void v) {
+          copyContent(node);
+          return v;
+        }
+
+        @Override
+        public Void visitEndElement(EndElementTree node, Void v) {
+          add(DocNode.html("</" + node.getName() + ">"));
+          return v;
+        }
+
+        @Override
+        public Void visitLink(LinkTree node, Void v) {
+          String signature = node.getReference().getSignature();
+          String label = render(node.getLabel()).trim();
+          links.add(signature);
+          add(DocNode.link(signature, label));
+          return v;
+        }
+      };
+      docTree.accept(visitor, null);
+      if (text.length() > 0) {
+        nodes.add(DocNode.text(text.toString()));
+      }
+      return markLanguageBlocks(nodes);
+    }
+
+    /**
+     * Delimit the content of the {@literal [language, ...]} blocks, the text nodes are split at the boundaries.
+     */
+    private List<DocNode> markLanguageBlocks(List<DocNode> nodes) {
+      StringBuilder flat = new StringBuilder();
+      for (DocNode node : nodes) {
+        if (node.kind == DocNode.Kind.TEXT) {
+          flat.append(node.value);
+        } else if (node.kind != DocNode.Kind.PARAGRAPH) {
+          flat.append(LanguageBlocks.OPAQUE);
+        }
+      }
+      List<LanguageBlocks.Region> regions = LanguageBlocks.scan(flat, name -> getPostProcessor(name) != null);
+      if (regions.isEmpty()) {
+        return nodes;
+      }
+      List<DocNode> marked = new ArrayList<>();
+      int offset = 0;
+      int index = 0;
+      boolean inside = false;
+      for (DocNode node : nodes) {
+        if (node.kind == DocNode.Kind.TEXT) {
+          // Boundaries are line starts, so they are always in a text node
+          String text = node.value;
+          int from = 0;
+          while (index < regions.size()) {
+            LanguageBlocks.Region region = regions.get(index);
+            int boundary = (inside ? region.end : region.start) - offset;
+            if (boundary > text.length()) {
+              break;
+            }
+            if (boundary > from) {
+              marked.add(DocNode.text(text.substring(from, boundary)));
+            }
+            from = boundary;
+            if (inside) {
+              marked.add(DocNode.LANGUAGE_END);
+              index++;
+            } else {
+              marked.add(DocNode.languageStart(region.languages));
+            }
+            inside = !inside;
+          }
+          if (from < text.length()) {
+            marked.add(from == 0 ? node : DocNode.text(text.substring(from)));
+          }
+          offset += text.length();
+        } else {
+          marked.add(node);
+          if (node.kind != DocNode.Kind.PARAGRAPH) {
+            offset++;
+          }
+        }
+      }
+      return marked;
+    }
+
     @Override
     public String id() {
       return elt.getQualifiedName().toString();
@@ -447,12 +1114,14 @@ public abstract class BaseProcessor extends AbstractProcessor {
      * @return the relative file name
      */
     public String resolveRelativeFileName(DocGenerator generator) {
-      Document doc = elt.getAnnotation(Document.class);
-      String relativeName = doc.fileName();
-      if (relativeName.isEmpty()) {
-        relativeName = elt.getQualifiedName() + getExtension();
-      }
-      return generator.resolveRelativeFileName(elt, relativeName);
+      return fileNames.computeIfAbsent(generator.getName(), name -> {
+        Document doc = elt.getAnnotation(Document.class);
+        String relativeName = doc.fileName();
+        if (relativeName.isEmpty()) {
+          relativeName = elt.getQualifiedName() + getExtension();
+        }
+        return generator.resolveRelativeFileName(elt, relativeName);
+      });
     }
   }
 
@@ -460,10 +1129,30 @@ public abstract class BaseProcessor extends AbstractProcessor {
 
     final File file;
     final String relativePath;
+    private ByteBuffer content;
 
-    FileDoc(File file, String relativePath) {
+    FileDoc(File file, String relativePath, ByteBuffer content) {
       this.file = file;
       this.relativePath = relativePath;
+      this.content = content;
+    }
+
+    /**
+     * @return the file content loaded by the discovery, or loaded again after {@link #release()}, shared by the
+     *         generators
+     */
+    ByteBuffer content() throws IOException {
+      if (content == null) {
+        content = FileDocScanner.load(file.toPath());
+      }
+      return content;
+    }
+
+    /**
+     * Release the file content once it is scanned by the generators.
+     */
+    void release() {
+      content = null;
     }
 
     @Override
@@ -478,42 +1167,34 @@ public abstract class BaseProcessor extends AbstractProcessor {
   }
 
 
-  private static final Pattern LINK_PATTERN = Pattern.compile("\\{@link\\s([^}]+)\\}");
-  private static final Pattern METHOD_LINK_PATTERN = Pattern.compile(
-    "^([$_\\w]+\\.)*[$_\\w]+" +
-      "(?:" +
-      "#[$_\\w]+" +
-      "(?:(?:\\([^)]*)\\)|$|(?= ))" +
-      ")?");
-
   private void visitLink(PackageElement pkgElt, String label, String signature, DocGenerator generator, DocWriter writer) {
     ElementResolution res = resolutions.get(signature);
     if (res == null) {
-      res = new ElementResolution(signature);
+      res = new ElementResolution(signature, generator.getName(), currentDoc);
       resolutions.put(signature, res);
+      pending.add(res);
     }
-    LinkProcessing fut = new LinkProcessing(generator, label);
+    LinkProcessing fut = new LinkProcessing(pkgElt, signature, generator, label);
     res.add(fut);
-    writer.write(() -> {
-      DocWriter ww = fut.writer;
-      if (ww == null) {
-        throw new DocGenException(pkgElt, "Could not resolve " + signature);
-      }
-      return ww;
-    });
+    writer.write(fut);
   }
 
   /**
-   * The resolution of an element.
+   * The resolution of an element, shared by the links to the same signature. The resolution is accounted in the metrics
+   * to the generator and the document of the first link.
    */
   class ElementResolution {
 
     final String signature;
+    final String generator;
+    final String doc;
     private Element elt;
     private List<LinkProcessing> handlers = new ArrayList<>();
 
-    public ElementResolution(String signature) {
+    public ElementResolution(String signature, String generator, String doc) {
       this.signature = signature;
+      this.generator = generator;
+      this.doc = doc;
     }
 
     boolean tryResolve() {
@@ -538,7 +1219,9 @@ public abstract class BaseProcessor extends AbstractProcessor {
     }
 
     private void doResolve() {
+      long start = metrics.start();
       elt = helper.resolveLink(signature);
+      metrics.end(Metrics.Phase.RESOLVE, generator, doc, start);
       if (elt != null) {
         for (LinkProcessing fut : handlers) {
           fut.handle(elt);
@@ -556,23 +1239,55 @@ public abstract class BaseProcessor extends AbstractProcessor {
     }
   }
 
-  class LinkProcessing {
+  class LinkProcessing implements DocWriter.Deferred {
 
+    final PackageElement pkgElt;
+    final String signature;
     final DocGenerator generator;
     final String label;
+    final String doc;
     private DocWriter writer;
 
-    public LinkProcessing(DocGenerator generator, String label) {
+    public LinkProcessing(PackageElement pkgElt, String signature, DocGenerator generator, String label) {
+      this.pkgElt = pkgElt;
+      this.signature = signature;
       this.generator = generator;
       this.label = label;
+      this.doc = currentDoc;
+    }
+
+    @Override
+    public DocWriter peek() {
+      return writer;
+    }
+
+    @Override
+    public DocWriter get() {
+      if (writer == null) {
+        throw new DocGenException(pkgElt, "Could not resolve " + signature);
+      }
+      return writer;
     }
 
     void handle(Element elt) {
+      long start = metrics.start();
+      // The links of an included package are accounted to the document including it
+      String enclosingDoc = currentDoc;
+      currentDoc = doc;
+      try {
+        doHandle(elt);
+      } finally {
+        currentDoc = enclosingDoc;
+        metrics.end(Metrics.Phase.LINK, generator.getName(), doc, start);
+      }
+    }
+
+    private void doHandle(Element elt) {
       writer = new DocWriter();
       if (elt instanceof PackageElement) {
         PackageElement includedElt = (PackageElement) elt;
         if (includedElt.getAnnotation(Document.class) == null) {
-          new PackageDoc(includedElt).process(generator, writer);
+          writer = include(includedElt, generator);
         } else {
           String link = resolveLinkToPackageDoc((PackageElement) elt);
           writer.append(link);
@@ -587,12 +1302,15 @@ public abstract class BaseProcessor extends AbstractProcessor {
               String fragment;
               if (helper.hasToBeTranslated(elt)) {
                 // Invoke the custom renderer, this may should the translation to the expected language.
-                fragment = generator.renderSource((ExecutableElement) elt, source);
+                writer.write(renderExample(generator, doc, () -> generator.renderSource((ExecutableElement) elt, source)));
+                return;
               } else {
                 // Do not call the custom rendering process, just use the default / java one.
                 JavaDocGenerator javaGen = new JavaDocGenerator();
                 javaGen.init(processingEnv);
+                long start = metrics.start();
                 fragment = javaGen.renderSource((ExecutableElement) elt, source);
+                metrics.end(Metrics.Phase.RENDER_SOURCE, generator.getName(), doc, start);
               }
               if (fragment != null) {
                 writer.literalMode();
@@ -607,7 +1325,9 @@ public abstract class BaseProcessor extends AbstractProcessor {
               TypeElement typeElt = (TypeElement) elt;
               JavaDocGenerator javaGen = new JavaDocGenerator();
               javaGen.init(processingEnv);
+              long start = metrics.start();
               fragment = javaGen.renderSource(typeElt, source);
+              metrics.end(Metrics.Phase.RENDER_SOURCE, generator.getName(), doc, start);
               if (fragment != null) {
                 writer.literalMode();
                 writer.append(fragment);
@@ -665,32 +1385,104 @@ public abstract class BaseProcessor extends AbstractProcessor {
     }
   }
 
+  /**
+   * Substitute the variables and apply the post-processors, documents are only finalized with this method when a
+   * subclass overrides one of the string based finalization hooks.
+   *
+   * @param name the generator name
+   * @param content the rendered document
+   * @return the post-processed document
+   */
   protected String postProcess(String name, String content) {
-    String processed = applyVariableSubstitution(content);
-    processed = applyPostProcessors(name, processed);
-    return processed;
+    if (legacyFinalization) {
+      return applyPostProcessors(name, applyVariableSubstitution(content));
+    }
+    return postProcess(name, content, variables);
   }
 
+  /**
+   * Write a post-processed document to the output returned by {@link #openWriter}.
+   *
+   * @param generator the generator
+   * @param doc the document
+   * @param content the post-processed document
+   * @deprecated override {@link #openWriter} instead, overriding this method makes the processor render each document
+   * to a string and finalize it with {@link #postProcess} instead of streaming it
+   */
+  @Deprecated
   protected void write(DocGenerator generator, Doc doc, String content) {
-    String outputOpt = processingEnv.getOptions().get(DOCGEN_OUTPUT);
-    if (outputOpt != null) {
-      outputOpt = outputOpt.replace("$lang", generator.getName());
-      String relativeName = doc.resolveRelativeFileName(generator);
+    try {
+      DocOutput out = openWriter(generator, doc);
       try {
-        File dir = new File(outputOpt);
-        for (int i = relativeName.indexOf('/'); i != -1; i = relativeName.indexOf('/', i + 1)) {
-          dir = new File(dir, relativeName.substring(0, i));
-          relativeName = relativeName.substring(i + 1);
+        out.write(content);
+      } catch (Throwable t) {
+        out.abort();
+        throw t;
+      }
+      out.commit();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private String postProcess(String name, String content, VariableSubstitution variables) {
+    StringBuilder buffer = new StringBuilder(content.length());
+    try (Writer pipeline = new PostProcessingWriter(name, variables, this::unknownVariable, this::lookupPostProcessor, buffer)) {
+      pipeline.write(content);
+    } catch (IOException e) {
+      throw new UndeclaredThrowableException(e);
+    }
+    return buffer.toString();
+  }
+
+  /**
+   * @return the output file of a document or {@code null} when the {@literal docgen.output} option is absent
+   */
+  private File outputFile(DocGenerator generator, Doc doc) {
+    String outputOpt = processingEnv.getOptions().get(DOCGEN_OUTPUT);
+    if (outputOpt == null) {
+      return null;
+    }
+    outputOpt = outputOpt.replace("$lang", generator.getName());
+    String relativeName = doc.resolveRelativeFileName(generator);
+    File dir = new File(outputOpt);
+    for (int i = relativeName.indexOf('/'); i != -1; i = relativeName.indexOf('/', i + 1)) {
+      dir = new File(dir, relativeName.substring(0, i));
+      relativeName = relativeName.substring(i + 1);
+    }
+    return new File(dir, relativeName);
+  }
+
+  /**
+   * Open the output of a document, the post-processed content of the document is streamed to the output. The output
+   * is committed when the document is complete and aborted when it has failed, e.g a link cannot be resolved while
+   * the document is streamed. It can be called concurrently for different documents when the
+   * {@literal docgen.parallelism} option is greater than one.
+   * <p/>
+   * The default implementation writes the file in the {@literal docgen.output} directory, the file is written only when
+   * its content has changed.
+   *
+   * @param generator the generator
+   * @param doc the document
+   * @return the output
+   */
+  protected DocOutput openWriter(DocGenerator generator, Doc doc) throws IOException {
+    File file = outputFile(generator, doc);
+    if (file == null) {
+      return new DocOutput() {
+        @Override
+        public void write(char[] cbuf, int off, int len) {
         }
-        File file = new File(dir, relativeName);
-        ensureDir(file.getParentFile());
-        try (FileWriter writer = new FileWriter(file)) {
-          writer.write(content);
+        @Override
+        public void commit() {
         }
-      } catch (IOException e) {
-        e.printStackTrace();
-      }
+        @Override
+        public void abort() {
+        }
+      };
     }
+    ensureDir(file.getParentFile());
+    return new OutputWriter(file.toPath(), writtenFiles, unchangedFiles);
   }
 
   /**
@@ -700,37 +1492,7 @@ public abstract class BaseProcessor extends AbstractProcessor {
    * @return the content after post-processing.
    */
   protected String applyPostProcessors(String name2, String content) {
-    final List<String> lines = Arrays.asList(content.split("\r?\n"));
-    StringBuilder processed = new StringBuilder();
-    Iterator<String> iterator = lines.iterator();
-    while (iterator.hasNext()) {
-      String line = iterator.next();
-      String trimmedLine = line.trim();
-      if (!PostProcessor.isBlockDeclaration(trimmedLine)) {
-        processed.append(line);
-        if (iterator.hasNext()) {
-          processed.append("\n");
-        }
-      } else {
-        String name = PostProcessor.getProcessorName(trimmedLine);
-        String[] attributes = PostProcessor.getProcessorAttributes(trimmedLine);
-        PostProcessor postProcessor = getPostProcessor(name);
-        if (postProcessor == null) {
-          processed.append(line);
-          if (iterator.hasNext()) {
-            processed.append("\n");
-          }
-        } else {
-          // Extract content.
-          String block = PostProcessor.getBlockContent(iterator);
-          processed.append(postProcessor.process(name2, block, attributes));
-          if (iterator.hasNext()) {
-            processed.append("\n");
-          }
-        }
-      }
-    }
-    return processed.toString();
+    return postProcess(name2, content, null);
   }
 
   private void ensureDir(File dir) {
@@ -744,15 +1506,19 @@ public abstract class BaseProcessor extends AbstractProcessor {
   }
 
   /**
-   * Replace `@{var} by the variable value passed to the annotation processor.
+   * Replace `${var} by the variable value passed to the annotation processor, `\${var} is not replaced and
+   * produces `${var}.
    *
    * @param content the content
    * @return the content with variable values
    */
   public String applyVariableSubstitution(String content) {
-    for (Map.Entry<String, String> entry : processingEnv.getOptions().entrySet()) {
-      content = content.replace("${" + entry.getKey() + "}", entry.getValue());
+    return variables.apply(content, this::unknownVariable);
+  }
+
+  private void unknownVariable(String name) {
+    if (warnUnknownVariables) {
+      unknownVariables.add(name);
     }
-    return content;
   }
 }
@@ -9,13 +9,20 @@ import javax.lang.model.element.VariableElement;
 
 /**
  * A doc generator plugin.
+ * <p/>
+ * When the {@code docgen.parallelism} processor option is greater than one, {@link #renderSource} is called from
+ * a worker thread. The calls for a given generator name are never concurrent and happen in the order of the
+ * documents, however the javac API must not be used directly from this method: lookups must be performed with
+ * the {@link JavacBroker} of the processing environment. All the other methods are called from the compiler thread
+ * and may run while a worker renders a source, except {@link #init} which is called once per round before any source
+ * of the round is rendered.
  *
  * @author <a href="mailto:julien@julienviet.com">Julien Viet</a>
  */
 public interface DocGenerator {
 
   /**
-   * Init the generator.
+   * Init the generator, called once per processing round before the documents of the round are processed.
    *
    * @param env the processor environment
    */
@@ -0,0 +1,191 @@
+package io.vertx.docgen.processor.impl;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.security.CodeSource;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The fingerprints of the inputs of the generated documents, persisted between builds to skip the documents
+ * whose inputs are unchanged.
+ * <p/>
+ * Each output is keyed by {@code generator:relativeFileName} and records the SHA-256 hash of each of its inputs.
+ * Source inputs are identified by {@code source:uri} and hashed from their content.
+ */
+class DocManifest {
+
+  static final String SOURCE_PREFIX = "source:";
+
+  private final File file;
+  private final Properties previous = new Properties();
+  private final Properties current = new Properties();
+  private final Map<String, String> sourceHashes = new HashMap<>();
+  private int upToDate;
+  private int generated;
+
+  DocManifest(File file) {
+    this.file = file;
+    if (file.isFile()) {
+      try (InputStream in = new FileInputStream(file)) {
+        previous.load(in);
+      } catch (IOException ignore) {
+        // Regenerate everything
+        previous.clear();
+      }
+    }
+  }
+
+  /**
+   * @param key the output key
+   * @return the recorded input hashes of the output or {@code null} when the output is not recorded
+   */
+  Map<String, String> recorded(String key) {
+    String value = previous.getProperty(key);
+    if (value == null) {
+      return null;
+    }
+    Map<String, String> inputs = new LinkedHashMap<>();
+    for (String line : value.split("\n")) {
+      int idx = line.indexOf(' ');
+      if (idx == -1) {
+        return null;
+      }
+      inputs.put(line.substring(idx + 1), line.substring(0, idx));
+    }
+    return inputs;
+  }
+
+  /**
+   * Record the input hashes of an output for the next build.
+   *
+   * @param key the output key
+   * @param inputs the input hashes
+   * @param upToDate whether the output was skipped
+   */
+  void record(String key, Map<String, String> inputs, boolean upToDate) {
+    StringBuilder value = new StringBuilder();
+    inputs.forEach((id, hash) -> {
+      if (value.length() > 0) {
+        value.append('\n');
+      }
+      value.append(hash).append(' ').append(id);
+    });
+    current.setProperty(key, value.toString());
+    if (upToDate) {
+      this.upToDate++;
+    } else {
+      generated++;
+    }
+  }
+
+  /**
+   * Hash the content of a source input, hashes are computed once per build.
+   *
+   * @param id the source id
+   * @return the hash or {@code null} when the source cannot be read
+   */
+  String hashSource(String id) {
+    return sourceHashes.computeIfAbsent(id, key -> {
+      try {
+        return hash(Files.readAllBytes(Paths.get(URI.create(id.substring(SOURCE_PREFIX.length())))));
+      } catch (Exception e) {
+        return null;
+      }
+    });
+  }
+
+  int upToDate() {
+    return upToDate;
+  }
+
+  int generated() {
+    return generated;
+  }
+
+  /**
+   * Save the outputs recorded during this build, outputs not recorded are dropped.
+   */
+  void save() throws IOException {
+    File dir = file.getParentFile();
+    if (dir != null && !dir.exists() && !dir.mkdirs()) {
+      throw new IOException("Could not create dir " + dir.getAbsolutePath());
+    }
+    try (OutputStream out = new FileOutputStream(file)) {
+      current.store(out, "vertx-docgen manifest");
+    }
+  }
+
+  private static final Map<Class<?>, String> codeVersions = new ConcurrentHashMap<>();
+
+  /**
+   * @return the version of the code of a class: the implementation version of its jar with the jar size and
+   * modification time, or the hash of the class file when the class is not loaded from a jar
+   */
+  static String codeVersion(Class<?> clazz) {
+    return codeVersions.computeIfAbsent(clazz, c -> {
+      StringBuilder version = new StringBuilder();
+      Package pkg = c.getPackage();
+      if (pkg != null && pkg.getImplementationVersion() != null) {
+        version.append(pkg.getImplementationVersion());
+      }
+      try {
+        CodeSource codeSource = c.getProtectionDomain().getCodeSource();
+        File location = codeSource != null && codeSource.getLocation() != null ? new File(codeSource.getLocation().toURI()) : null;
+        if (location != null && location.isFile()) {
+          version.append(":").append(location.getName()).append(":").append(location.length()).append(":")
+            .append(location.lastModified());
+        } else {
+          URL classFile = c.getResource(c.getName().substring(c.getName().lastIndexOf('.') + 1) + ".class");
+          if (classFile != null) {
+            try (InputStream in = classFile.openStream()) {
+              ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+              byte[] bytes = new byte[8192];
+              int len;
+              while ((len = in.read(bytes)) != -1) {
+                buffer.write(bytes, 0, len);
+              }
+              version.append(":").append(hash(buffer.toByteArray()));
+            }
+          }
+        }
+      } catch (Exception ignore) {
+        // The code source cannot be read, the name of the class is the only input
+      }
+      return version.toString();
+    });
+  }
+
+  static String hash(String s) {
+    return hash(s.getBytes(StandardCharsets.UTF_8));
+  }
+
+  static String hash(byte[] bytes) {
+    MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new AssertionError(e);
+    }
+    StringBuilder hex = new StringBuilder();
+    for (byte b : digest.digest(bytes)) {
+      hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+    }
+    return hex.toString();
+  }
+}
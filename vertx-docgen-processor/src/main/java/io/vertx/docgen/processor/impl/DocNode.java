@@ -0,0 +1,105 @@
+package io.vertx.docgen.processor.impl;
+
+/**
+ * A node of a package comment. A comment is scanned once into a list of language neutral nodes, this list is
+ * then rendered for each generator.
+ */
+final class DocNode {
+
+  enum Kind {
+
+    /**
+     * Plain text.
+     */
+    TEXT,
+
+    /**
+     * The body of a {@literal {@code}} or {@literal {@literal}} tag.
+     */
+    LITERAL,
+
+    /**
+     * An unescaped HTML entity.
+     */
+    ENTITY,
+
+    /**
+     * An HTML element copied as is.
+     */
+    HTML,
+
+    /**
+     * A {@literal {@link}} tag, it renders a link or includes the linked element depending on the resolved element.
+     */
+    LINK,
+
+    /**
+     * The {@literal $lang} placeholder replaced by the generator name.
+     */
+    LANG,
+
+    /**
+     * The start of a new paragraph.
+     */
+    PARAGRAPH,
+
+    /**
+     * The start of the content of a {@literal [language, ...]} block, the content is rendered only for the
+     * languages of the block.
+     */
+    LANGUAGE_START,
+
+    /**
+     * The end of the content of a {@literal [language, ...]} block.
+     */
+    LANGUAGE_END
+
+  }
+
+  final Kind kind;
+  final String value;
+  final String label;
+  final String[] languages;
+
+  private DocNode(Kind kind, String value, String label) {
+    this(kind, value, label, null);
+  }
+
+  private DocNode(Kind kind, String value, String label, String[] languages) {
+    this.kind = kind;
+    this.value = value;
+    this.label = label;
+    this.languages = languages;
+  }
+
+  static DocNode text(String text) {
+    return new DocNode(Kind.TEXT, text, null);
+  }
+
+  static DocNode literal(String body) {
+    return new DocNode(Kind.LITERAL, body, null);
+  }
+
+  static DocNode entity(String value) {
+    return new DocNode(Kind.ENTITY, value, null);
+  }
+
+  static DocNode html(String markup) {
+    return new DocNode(Kind.HTML, markup, null);
+  }
+
+  static DocNode link(String signature, String label) {
+    return new DocNode(Kind.LINK, signature, label);
+  }
+
+  static DocNode languageStart(String[] languages) {
+    return new DocNode(Kind.LANGUAGE_START, null, null, languages);
+  }
+
+  static final DocNode LANGUAGE_END = new DocNode(Kind.LANGUAGE_END, null, null);
+
+  static final DocNode LANG = new DocNode(Kind.LANG, null, null);
+
+  static final DocNode PARAGRAPH = new DocNode(Kind.PARAGRAPH, null, null);
+
+}
@@ -0,0 +1,35 @@
+package io.vertx.docgen.processor.impl;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * The output of a document, the post-processed content of the document is streamed to the output which is then
+ * committed when the document is complete or aborted when it has failed, an aborted output must not publish the
+ * content written so far.
+ */
+public abstract class DocOutput extends Writer {
+
+  /**
+   * Publish the content written to this output, called once when the document is complete.
+   */
+  public abstract void commit() throws IOException;
+
+  /**
+   * Drop the content written to this output, called when the document has failed. Aborting a committed output does
+   * nothing.
+   */
+  public abstract void abort();
+
+  @Override
+  public void flush() throws IOException {
+  }
+
+  /**
+   * Abort this output when it has not been committed.
+   */
+  @Override
+  public void close() {
+    abort();
+  }
+}
@@ -2,18 +2,43 @@ package io.vertx.docgen.processor.impl;
 
 import java.io.IOException;
 import java.io.Writer;
-import java.lang.reflect.UndeclaredThrowableException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.function.Supplier;
 
 /**
+ * A writer of documentation text, the content is a rope of sealed text chunks and of nested writers resolved
+ * when the content is rendered.
+ *
  * @author <a href="mailto:julien@julienviet.com">Julien Viet</a>
  */
 public class DocWriter extends Writer {
 
-  private final StringBuilder delegate;
+  /**
+   * A nested writer that is only available after an event, e.g. the resolution of a link.
+   */
+  interface Deferred extends Supplier<DocWriter> {
+
+    /**
+     * @return the nested writer or {@code null} when it is not yet available
+     */
+    DocWriter peek();
+
+  }
+
+  /**
+   * The size of a text chunk beyond which it is sealed by the bulk appends when there is a spill store.
+   */
+  private static final int SEAL_SIZE = 1024 * 1024;
+
+  private StringBuilder delegate;
   private final List<Object> chunks = new ArrayList<>();
+  private final SpillStore spillStore;
+  private int held;
   private int status;
   private boolean literal;
   private boolean forceLiteral;
@@ -23,31 +48,165 @@ public class DocWriter extends Writer {
   }
 
   public DocWriter(boolean forceLiteral) {
+    this(forceLiteral, null);
+  }
+
+  /**
+   * @param forceLiteral whether the writer is always in literal mode
+   * @param spillStore the store of the sealed chunks or {@code null} to keep them in memory
+   */
+  DocWriter(boolean forceLiteral, SpillStore spillStore) {
+    this.spillStore = spillStore;
     this.delegate = new StringBuilder();
     this.status = 0;
     this.literal = forceLiteral;
     this.forceLiteral = forceLiteral;
   }
 
+  /**
+   * Render the content of this writer, the content is discarded after rendering.
+   *
+   * @return the rendered content
+   */
   public String render() {
-    StringBuilder buffer = new StringBuilder();
-    render(buffer);
+    List<CharSequence> pieces = new ArrayList<>();
+    StringBuilder buffer = new StringBuilder(flatten(pieces));
+    for (CharSequence piece : pieces) {
+      buffer.append(piece);
+    }
+    clear();
     return buffer.toString();
   }
 
-  private void render(StringBuilder buffer) {
-    chunks.forEach(chunk -> {
-      if (chunk instanceof Supplier) {
-        Supplier<DocWriter> consumer = (Supplier<DocWriter>) chunk;
-        DocWriter writer = consumer.get();
-        writer.render(buffer);
+  /**
+   * Render the content of this writer to an appendable, the content is discarded after rendering.
+   *
+   * @param out the appendable
+   */
+  public void render(Appendable out) throws IOException {
+    List<CharSequence> pieces = new ArrayList<>();
+    int length = flatten(pieces);
+    if (out instanceof StringBuilder) {
+      StringBuilder sb = (StringBuilder) out;
+      sb.ensureCapacity(sb.length() + length);
+    }
+    for (CharSequence piece : pieces) {
+      out.append(piece);
+    }
+    clear();
+  }
+
+  private void clear() {
+    delegate = new StringBuilder();
+    chunks.clear();
+    if (held > 0) {
+      spillStore.release(held);
+      held = 0;
+    }
+  }
+
+  /**
+   * Seal the current text chunk when it is large, so the spill store bounds the memory used by large documents.
+   */
+  private void sealIfLarge() {
+    if (spillStore != null && delegate.length() >= SEAL_SIZE) {
+      seal();
+    }
+  }
+
+  /**
+   * Seal the current text chunk, it is moved to the spill store when the held chunks exceed the memory budget.
+   */
+  void seal() {
+    if (delegate.length() > 0) {
+      if (spillStore != null) {
+        Object chunk = spillStore.store(delegate);
+        if (chunk == delegate) {
+          held += delegate.length();
+        }
+        chunks.add(chunk);
       } else {
-        buffer.append(chunk);
+        chunks.add(delegate);
       }
-    });
-    buffer.append(delegate);
-    delegate.setLength(0);
-    chunks.clear();
+      delegate = new StringBuilder();
+    }
+  }
+
+  /**
+   * Resolve the nested writers and collect the text of the rope in order, the traversal is iterative so deep
+   * include chains do not overflow the stack. Nested writers can be shared by several writers and are not modified.
+   *
+   * @param pieces the collected text
+   * @return the length of the rendered content
+   */
+  private int flatten(List<CharSequence> pieces) {
+    long length = 0;
+    Deque<DocWriter> writers = new ArrayDeque<>();
+    Deque<Integer> indexes = new ArrayDeque<>();
+    DocWriter current = this;
+    int index = 0;
+    while (current != null) {
+      if (index < current.chunks.size()) {
+        Object chunk = current.chunks.get(index++);
+        if (chunk instanceof Supplier) {
+          Supplier<DocWriter> consumer = (Supplier<DocWriter>) chunk;
+          writers.push(current);
+          indexes.push(index);
+          current = consumer.get();
+          index = 0;
+        } else if (chunk instanceof SpillStore.Chunk) {
+          SpillStore.Chunk spilled = (SpillStore.Chunk) chunk;
+          pieces.add(spilled.load());
+          length += spilled.length();
+        } else {
+          CharSequence text = (CharSequence) chunk;
+          pieces.add(text);
+          length += text.length();
+        }
+      } else {
+        if (current.delegate.length() > 0) {
+          pieces.add(current.delegate);
+          length += current.delegate.length();
+        }
+        current = writers.poll();
+        if (current != null) {
+          index = indexes.pop();
+        }
+      }
+    }
+    if (length > Integer.MAX_VALUE) {
+      throw new OutOfMemoryError("Rendered content too large: " + length);
+    }
+    return (int) length;
+  }
+
+  /**
+   * Count the deferred writers of the rope that are not yet available, the content can be rendered when there are
+   * none.
+   *
+   * @return the number of pending writers
+   */
+  int pending() {
+    int count = 0;
+    Set<DocWriter> visited = new HashSet<>();
+    Deque<DocWriter> writers = new ArrayDeque<>();
+    writers.push(this);
+    DocWriter current;
+    while ((current = writers.poll()) != null) {
+      if (visited.add(current)) {
+        for (Object chunk : current.chunks) {
+          if (chunk instanceof Deferred) {
+            DocWriter nested = ((Deferred) chunk).peek();
+            if (nested == null) {
+              count++;
+            } else {
+              writers.push(nested);
+            }
+          }
+        }
+      }
+    }
+    return count;
   }
 
   public void exec(Runnable r) {
@@ -81,106 +240,125 @@ public class DocWriter extends Writer {
   }
 
   public void write(Supplier<DocWriter> future) {
-    if (delegate.length() > 0) {
-      String s = delegate.toString();
-      delegate.setLength(0);
-      chunks.add(s);
-    }
+    seal();
     chunks.add(future);
   }
 
   @Override
   public void write(int c) {
-    try {
-      super.write(c);
-    } catch (IOException e) {
-      throw new UndeclaredThrowableException(e);
+    char ch = (char) c;
+    if (literal) {
+      delegate.append(ch);
+    } else if (ch == '\n') {
+      status = 1;
+      delegate.append(ch);
+    } else if (status == 1) {
+      status = 2;
+      if (ch != ' ') {
+        delegate.append(ch);
+      }
+    } else {
+      delegate.append(ch);
     }
   }
 
   @Override
   public void write(char[] cbuf) {
-    try {
-      super.write(cbuf);
-    } catch (IOException e) {
-      throw new UndeclaredThrowableException(e);
-    }
+    write(cbuf, 0, cbuf.length);
   }
 
   @Override
   public void write(String str) {
-    try {
-      super.write(str);
-    } catch (IOException e) {
-      throw new UndeclaredThrowableException(e);
-    }
+    write(str, 0, str.length());
   }
 
   @Override
   public void write(String str, int off, int len) {
-    try {
-      super.write(str, off, len);
-    } catch (IOException e) {
-      throw new UndeclaredThrowableException(e);
-    }
+    append(str, off, off + len);
   }
 
   @Override
   public DocWriter append(CharSequence csq) {
-    try {
-      return (DocWriter) super.append(csq);
-    } catch (IOException e) {
-      throw new UndeclaredThrowableException(e);
+    if (csq == null) {
+      csq = "null";
     }
+    return append(csq, 0, csq.length());
   }
 
   @Override
   public DocWriter append(CharSequence csq, int start, int end) {
-    try {
-      return (DocWriter) super.append(csq, start, end);
-    } catch (IOException e) {
-      throw new UndeclaredThrowableException(e);
+    if (csq == null) {
+      csq = "null";
+    }
+    if (literal) {
+      delegate.append(csq, start, end);
+      sealIfLarge();
+      return this;
+    }
+    // Copy the spans between new lines, the first space of a line is skipped
+    while (start < end) {
+      if (status == 1) {
+        char c = csq.charAt(start);
+        if (c == ' ') {
+          status = 2;
+          start++;
+          continue;
+        } else if (c != '\n') {
+          status = 2;
+        }
+      }
+      int idx = start;
+      while (idx < end && csq.charAt(idx) != '\n') {
+        idx++;
+      }
+      if (idx == end) {
+        delegate.append(csq, start, end);
+        break;
+      }
+      delegate.append(csq, start, ++idx);
+      status = 1;
+      start = idx;
     }
+    sealIfLarge();
+    return this;
   }
 
   @Override
   public DocWriter append(char c) {
-    try {
-      return (DocWriter) super.append(c);
-    } catch (IOException e) {
-      throw new UndeclaredThrowableException(e);
-    }
+    write(c);
+    return this;
   }
 
   @Override
   public void write(char[] cbuf, int off, int len) {
+    int end = off + len;
     if (literal) {
-      while (off < len) {
-        delegate.append(cbuf[off++]);
-      }
-    } else {
-      while (off < len) {
-        char c = cbuf[off++];
-        switch (c) {
-          case '\n':
-            status = 1;
-            delegate.append(c);
-            break;
-          case ' ':
-            if (status == 1) {
-              status = 2;
-            } else {
-              delegate.append(c);
-            }
-            break;
-          default:
-            delegate.append(c);
-            if (status == 1) {
-              status = 2;
-            }
-            break;
+      delegate.append(cbuf, off, len);
+      return;
+    }
+    // Same as append(CharSequence, int, int)
+    while (off < end) {
+      if (status == 1) {
+        char c = cbuf[off];
+        if (c == ' ') {
+          status = 2;
+          off++;
+          continue;
+        } else if (c != '\n') {
+          status = 2;
         }
       }
+      int idx = off;
+      while (idx < end && cbuf[idx] != '\n') {
+        idx++;
+      }
+      if (idx == end) {
+        delegate.append(cbuf, off, end - off);
+        break;
+      }
+      delegate.append(cbuf, off, ++idx - off);
+      status = 1;
+      off = idx;
     }
   }
 
@@ -0,0 +1,381 @@
+package io.vertx.docgen.processor.impl;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Scan a document file in a single pass: the {@literal $lang} placeholders are substituted, the {@literal {@link}}
+ * tags are extracted and the content of the {@literal [language, ...]} blocks that do not match the generator is
+ * skipped, like {@link LanguageBlocks} does.
+ * <p/>
+ * The file is {@link #load loaded} once for all generators, large files are memory-mapped. The markup is searched in
+ * the UTF-8 bytes: the markup is ASCII and an ASCII byte is never part of an encoded non ASCII char. The text is decoded span by span through a small buffer, so the memory
+ * used does not depend on the size of the file. The generator name is assumed to not contain markup chars.
+ */
+class FileDocScanner {
+
+  /**
+   * Receives the scanned document.
+   */
+  interface Handler {
+
+    /**
+     * The text of the document, only valid during the call.
+     */
+    void text(CharSequence text);
+
+    /**
+     * A link of the document.
+     */
+    void link(String signature, String label);
+
+  }
+
+  private static final int DECODE_SIZE = 8192;
+
+  /**
+   * The size from which a file is memory-mapped, smaller files are read on the heap which is cheaper than setting up
+   * a mapping and does not keep the file locked on Windows until the mapping is collected.
+   */
+  static final long MAP_THRESHOLD = 1024 * 1024;
+
+  private final ByteBuffer bytes;
+  private final Bytes chars;
+  private final int length;
+  private final String lang;
+  private final Predicate<String> isPostProcessor;
+  private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+    .onMalformedInput(CodingErrorAction.REPLACE)
+    .onUnmappableCharacter(CodingErrorAction.REPLACE);
+  private final CharBuffer decoded = CharBuffer.allocate(DECODE_SIZE);
+
+  // The last link search
+  private int linkFrom = Integer.MAX_VALUE;
+  private int link;
+
+  // Whether the last line contains a link
+  private boolean lineHasLink;
+
+  private FileDocScanner(ByteBuffer bytes, String lang, Predicate<String> isPostProcessor) {
+    this.bytes = bytes;
+    this.chars = new Bytes(bytes, bytes.limit());
+    this.length = bytes.limit();
+    this.lang = lang;
+    this.isPostProcessor = isPostProcessor;
+  }
+
+  /**
+   * Load the content of a document file, the content can be scanned concurrently.
+   *
+   * @param file the file
+   * @return the file bytes, memory-mapped when the file is larger than {@link #MAP_THRESHOLD}
+   */
+  static ByteBuffer load(Path file) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      long size = channel.size();
+      if (size > Integer.MAX_VALUE) {
+        throw new IOException("Document " + file + " is too large");
+      }
+      if (size >= MAP_THRESHOLD) {
+        return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+      }
+    }
+    return ByteBuffer.wrap(Files.readAllBytes(file));
+  }
+
+  /**
+   * Scan the content of a document file.
+   *
+   * @param bytes the content returned by {@link #load}
+   * @param lang the generator name
+   * @param isPostProcessor whether a name is a post-processor
+   * @param handler the handler
+   */
+  static void scan(ByteBuffer bytes, String lang, Predicate<String> isPostProcessor, Handler handler) {
+    new FileDocScanner(bytes.duplicate(), lang, isPostProcessor).scan(handler);
+  }
+
+  private void scan(Handler handler) {
+    int pos = 0;
+    // Whether the language blocks are still scanned
+    boolean blocks = true;
+    while (pos < length) {
+      int end = lineEnd(pos);
+      int next = next(end);
+      if (blocks && firstChar(pos, end) == '[') {
+        if (!isPlain(pos, end)) {
+          // Could be a block declaration once rendered
+          blocks = false;
+        } else {
+          String line = substitute(pos, end).trim();
+          if (Lexer.isBlockDeclaration(line) && isPostProcessor.test(PostProcessor.getProcessorName(line))) {
+            if (next == length) {
+              blocks = false;
+            } else {
+              int fenceEnd = lineEnd(next);
+              if (!isPlain(next, fenceEnd)) {
+                blocks = false;
+              } else if (!isFence(next, fenceEnd)) {
+                // Block without delimiters (1 line only)
+                next = next(fenceEnd);
+              } else {
+                int contentStart = next(fenceEnd);
+                int closing = closingFence(contentStart);
+                if (closing == -1) {
+                  // Unterminated block
+                  blocks = false;
+                } else {
+                  String name = PostProcessor.getProcessorName(line);
+                  String[] attributes = PostProcessor.getProcessorAttributes(line);
+                  if (name.equalsIgnoreCase(LanguageBlocks.LANGUAGE) && attributes.length > 0 && contentStart < closing
+                    && !LanguageFilterPostProcessor.matches(lang, attributes)) {
+                    // The language post-processor discards the content
+                    emit(pos, contentStart, handler);
+                    pos = closing;
+                  }
+                  next = next(lineEnd(closing));
+                }
+              }
+            }
+          }
+        }
+      }
+      emit(pos, next, handler);
+      pos = next;
+    }
+  }
+
+  /**
+   * @return the start of the closing fence line of a block or {@code -1}
+   */
+  private int closingFence(int pos) {
+    while (pos < length) {
+      int end = lineEnd(pos);
+      if (isFence(pos, end)) {
+        return pos;
+      }
+      pos = next(end);
+    }
+    return -1;
+  }
+
+  private int next(int lineEnd) {
+    return lineEnd < length ? lineEnd + 1 : length;
+  }
+
+  /**
+   * The end of a line, a new line within a link tag does not end the line as the link is rendered on a single line.
+   */
+  private int lineEnd(int pos) {
+    lineHasLink = false;
+    while (true) {
+      int nl = pos;
+      while (nl < length && bytes.get(nl) != '\n') {
+        nl++;
+      }
+      int link = findLink(pos);
+      if (link != -1 && link < nl) {
+        lineHasLink = true;
+        pos = Lexer.linkEnd(chars, link);
+      } else {
+        return nl;
+      }
+    }
+  }
+
+  /**
+   * @return the first char of the trimmed line or {@code -1}
+   */
+  private int firstChar(int from, int to) {
+    while (from < to && (bytes.get(from) & 0xFF) <= ' ') {
+      from++;
+    }
+    return from < to ? bytes.get(from) : -1;
+  }
+
+  private boolean isFence(int from, int to) {
+    while (from < to && (bytes.get(from) & 0xFF) <= ' ') {
+      from++;
+    }
+    while (to > from && (bytes.get(to - 1) & 0xFF) <= ' ') {
+      to--;
+    }
+    if (to - from != 4) {
+      return false;
+    }
+    for (int i = from;i < to;i++) {
+      if (bytes.get(i) != '-') {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * A line is plain when it is known before rendering: it has no link and no {@literal $} after the substitution of
+   * the {@literal $lang} placeholders. Must be called after {@link #lineEnd(int)} for the same line.
+   */
+  private boolean isPlain(int from, int to) {
+    if (lineHasLink) {
+      return false;
+    }
+    Bytes line = chars.limit(to);
+    int pos = from;
+    int start;
+    while ((start = Lexer.findLang(line, pos)) != -1) {
+      if (Lexer.isEscapedLang(line, start) || containsDollar(pos, start)) {
+        return false;
+      }
+      pos = Lexer.langEnd(line, start);
+    }
+    return !containsDollar(pos, to);
+  }
+
+  private boolean containsDollar(int from, int to) {
+    for (int i = from;i < to;i++) {
+      if (bytes.get(i) == '$') {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private int findLink(int from) {
+    // A link found after a previous search position is the next link for the positions before it
+    if (from < linkFrom || (link != -1 && link < from)) {
+      linkFrom = from;
+      link = Lexer.findLink(chars, from);
+    }
+    return link;
+  }
+
+  /**
+   * Emit the text and the links of a range of lines.
+   */
+  private void emit(int from, int to, Handler handler) {
+    int pos = from;
+    while (pos < to) {
+      int start = findLink(pos);
+      if (start == -1 || start >= to) {
+        substitute(pos, to, handler::text);
+        break;
+      }
+      substitute(pos, start, handler::text);
+      int end = Lexer.linkEnd(chars, start);
+      String value = substitute(Lexer.linkValueStart(start), end - 1).trim();
+      int signatureEnd = Lexer.signatureEnd(value, 0, value.length());
+      if (signatureEnd != -1) {
+        handler.link(value.substring(0, signatureEnd), value.substring(signatureEnd).trim());
+      }
+      pos = end;
+    }
+  }
+
+  private String substitute(int from, int to) {
+    StringBuilder buffer = new StringBuilder();
+    substitute(from, to, buffer::append);
+    return buffer.toString();
+  }
+
+  /**
+   * Decode a range of bytes and substitute the {@literal $lang} placeholders.
+   */
+  private void substitute(int from, int to, Consumer<CharSequence> out) {
+    Bytes range = chars.limit(to);
+    int pos = from;
+    int start;
+    while ((start = Lexer.findLang(range, pos)) != -1) {
+      decode(pos, start, out);
+      if (Lexer.isEscapedLang(range, start)) {
+        // \$lang
+        out.accept("$lang");
+      } else {
+        out.accept(lang);
+      }
+      pos = Lexer.langEnd(range, start);
+    }
+    decode(pos, to, out);
+  }
+
+  private void decode(int from, int to, Consumer<CharSequence> out) {
+    if (from == to) {
+      return;
+    }
+    ByteBuffer in = bytes.duplicate();
+    in.limit(to).position(from);
+    decoder.reset();
+    CoderResult result;
+    do {
+      result = decoder.decode(in, decoded, true);
+      drain(out);
+    } while (result.isOverflow());
+    while (decoder.flush(decoded).isOverflow()) {
+      drain(out);
+    }
+    drain(out);
+  }
+
+  private void drain(Consumer<CharSequence> out) {
+    decoded.flip();
+    if (decoded.hasRemaining()) {
+      out.accept(decoded);
+    }
+    decoded.clear();
+  }
+
+  /**
+   * The bytes seen as ISO-8859-1 chars, only the ASCII chars matter to the lexer.
+   */
+  private static class Bytes implements CharSequence {
+
+    private final ByteBuffer bytes;
+    private final int length;
+
+    Bytes(ByteBuffer bytes, int length) {
+      this.bytes = bytes;
+      this.length = length;
+    }
+
+    Bytes limit(int length) {
+      return new Bytes(bytes, length);
+    }
+
+    @Override
+    public int length() {
+      return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+      if (index >= length) {
+        throw new IndexOutOfBoundsException();
+      }
+      return (char) (bytes.get(index) & 0xFF);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+      StringBuilder buffer = new StringBuilder(end - start);
+      for (int i = start;i < end;i++) {
+        buffer.append(charAt(i));
+      }
+      return buffer;
+    }
+
+    @Override
+    public String toString() {
+      return subSequence(0, length).toString();
+    }
+  }
+}
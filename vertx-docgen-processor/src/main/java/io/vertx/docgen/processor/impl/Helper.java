@@ -8,6 +8,7 @@ import javax.annotation.processing.ProcessingEnvironment;
 import javax.lang.model.element.Element;
 import javax.lang.model.element.ElementKind;
 import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
 import javax.lang.model.element.TypeElement;
 import javax.lang.model.element.TypeParameterElement;
 import javax.lang.model.type.ArrayType;
@@ -19,84 +20,72 @@ import javax.lang.model.type.TypeMirror;
 import javax.lang.model.type.TypeVariable;
 import javax.lang.model.util.Elements;
 import javax.lang.model.util.Types;
+import javax.tools.JavaFileObject;
 import java.io.IOException;
-import java.io.Reader;
 import java.lang.reflect.UndeclaredThrowableException;
-import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
-import java.util.function.Predicate;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * @author <a href="mailto:julien@julienviet.com">Julien Viet</a>
  */
 class Helper {
 
-  static final Pattern LANG_PATTERN = Pattern.compile("(\\\\)?\\$lang");
-
   final Types typeUtils;
   final Elements elementUtils;
   final DocTrees docTrees;
+  final SourceCache sourceCache;
 
-  public Helper(ProcessingEnvironment env) {
+  public Helper(ProcessingEnvironment env, SourceCache sourceCache) {
     typeUtils = env.getTypeUtils();
     elementUtils = env.getElementUtils();
     docTrees = DocTrees.instance(env);
+    this.sourceCache = sourceCache;
   }
 
-  boolean matchesConstructor(Element elt, String memberName, Predicate<ExecutableElement> parametersMatcher) {
-    if (elt.getKind() == ElementKind.CONSTRUCTOR) {
-      ExecutableElement constructorElt = (ExecutableElement) elt;
-      TypeElement typeElt = (TypeElement) constructorElt.getEnclosingElement();
-      return typeElt.getSimpleName().toString().equals(memberName) && parametersMatcher.test(constructorElt);
-    }
-    return false;
-  }
+  // The order of kinds is important
+  private static final ElementKind[] MEMBER_KINDS = { ElementKind.FIELD, ElementKind.ENUM_CONSTANT, ElementKind.CONSTRUCTOR, ElementKind.METHOD };
+  private static final ElementKind[] EXECUTABLE_KINDS = { ElementKind.CONSTRUCTOR, ElementKind.METHOD };
 
-  boolean matchesMethod(Element elt, String memberName, Predicate<ExecutableElement> parametersMatcher) {
-    if (elt.getKind() == ElementKind.METHOD) {
-      ExecutableElement methodElt = (ExecutableElement) elt;
-      return methodElt.getSimpleName().toString().equals(memberName) && parametersMatcher.test(methodElt);
-    }
-    return false;
-  }
+  private final Map<TypeElement, MemberIndex> memberIndexes = new HashMap<>();
 
-  boolean matchesFieldOrEnumConstant(Element elt, String memberName) {
-    ElementKind kind = elt.getKind();
-    return (kind == ElementKind.FIELD || kind == ElementKind.ENUM_CONSTANT) && elt.getSimpleName().toString().equals(memberName);
+  /**
+   * Discard the state computed against the elements of the previous round.
+   */
+  void newRound() {
+    memberIndexes.clear();
   }
 
-  private static final Pattern P = Pattern.compile("#(\\p{javaJavaIdentifierStart}(?:\\p{javaJavaIdentifierPart})*)(?:\\((.*)\\))?$");
-
   public Element resolveLink(String signature) {
-    Matcher signatureMatcher = P.matcher(signature);
-    if (signatureMatcher.find()) {
-      String memberName = signatureMatcher.group(1);
-      String typeName = signature.substring(0, signatureMatcher.start());
+    int member = Lexer.findMember(signature);
+    if (member != -1) {
+      int memberNameEnd = Lexer.memberNameEnd(signature, member);
+      String memberName = signature.substring(member + 1, memberNameEnd);
+      String typeName = signature.substring(0, member);
       TypeElement typeElt = elementUtils.getTypeElement(typeName);
       if (typeElt == null) {
         return null;
       }
-      Predicate<? super Element> memberMatcher;
-      if (signatureMatcher.group(2) != null) {
-        String t = signatureMatcher.group(2).trim();
-        Predicate<ExecutableElement> parametersMatcher;
-        if (t.length() == 0) {
-          parametersMatcher = exeElt -> exeElt.getParameters().isEmpty();
-        } else {
-          parametersMatcher = parametersMatcher(t.split("\\s*,\\s*"));
+      MemberIndex index = memberIndex(typeElt);
+      int parametersEnd = Lexer.parametersEnd(signature, memberNameEnd);
+      if (parametersEnd != -1) {
+        String t = signature.substring(memberNameEnd + 1, parametersEnd).trim();
+        String[] parameterSignature = t.length() == 0 ? new String[0] : t.split("\\s*,\\s*");
+        for (ElementKind kind : EXECUTABLE_KINDS) {
+          Element memberElt = index.find(kind, memberName, parameterSignature);
+          if (memberElt != null) {
+            return memberElt;
+          }
         }
-        memberMatcher = elt -> matchesConstructor(elt, memberName, parametersMatcher) || matchesMethod(elt, memberName, parametersMatcher);
       } else {
-        memberMatcher = elt -> matchesConstructor(elt, memberName, exeElt -> true) ||
-            matchesMethod(elt, memberName, exeElt -> true) ||
-            matchesFieldOrEnumConstant(elt, memberName);
-      }
-      // The order of kinds is important
-      for (ElementKind kind : Arrays.asList(ElementKind.FIELD, ElementKind.ENUM_CONSTANT, ElementKind.CONSTRUCTOR, ElementKind.METHOD)) {
-        for (Element memberElt : elementUtils.getAllMembers(typeElt)) {
-          if(memberElt.getKind() == kind && memberMatcher.test(memberElt)) {
+        for (ElementKind kind : MEMBER_KINDS) {
+          Element memberElt = index.find(kind, memberName, null);
+          if (memberElt != null) {
             return memberElt;
           }
         }
@@ -111,36 +100,168 @@ class Helper {
     }
   }
 
+  private MemberIndex memberIndex(TypeElement typeElt) {
+    MemberIndex index = memberIndexes.get(typeElt);
+    if (index == null) {
+      index = new MemberIndex(typeElt);
+      memberIndexes.put(typeElt, index);
+    }
+    return index;
+  }
+
   /**
-   * Return a matcher for parameters, given the parameter type signature of an executable element. The parameter signature
-   * is a list of parameter types formatted as a signature, i.e all types are raw, or primitive, or arrays. Unqualified
-   * types are resolved against the import of the specified {@code compilationUnitTree} argument.
-   *
-   * @param parameterSignature the parameter type names
-   * @return the matcher
+   * The members declared by a type grouped by name and kind, constructors are grouped under the simple name
+   * of the type. The erased parameter types of executable members are computed once.
    */
-  Predicate<ExecutableElement> parametersMatcher(String[] parameterSignature) {
-    return exeElt -> {
-      if (exeElt.getParameters().size() == parameterSignature.length) {
-        TypeMirror tm2  = exeElt.asType();
-        ExecutableType tm3  = (ExecutableType) typeUtils.erasure(tm2);
-        for (int j = 0;j < parameterSignature.length;j++) {
-          String t1 = toString(tm3.getParameterTypes().get(j));
-          String t2 = parameterSignature[j];
-          if (t2.indexOf('.') == -1) {
-            t1 = t1.substring(t1.lastIndexOf('.') + 1);
-          } else if (t1.indexOf('.') == -1) {
-            t2 = t2.substring(t2.lastIndexOf('.') + 1);
+  private class MemberIndex {
+
+    private final TypeElement typeElt;
+    private final Map<String, Map<ElementKind, List<Member>>> members = new HashMap<>();
+    private List<MemberIndex> supertypes;
+
+    MemberIndex(TypeElement typeElt) {
+      this.typeElt = typeElt;
+      for (Element memberElt : typeElt.getEnclosedElements()) {
+        ElementKind kind = memberElt.getKind();
+        String name;
+        switch (kind) {
+          case CONSTRUCTOR:
+            name = typeElt.getSimpleName().toString();
+            break;
+          case METHOD:
+          case FIELD:
+          case ENUM_CONSTANT:
+            name = memberElt.getSimpleName().toString();
+            break;
+          default:
+            continue;
+        }
+        members
+          .computeIfAbsent(name, n -> new EnumMap<>(ElementKind.class))
+          .computeIfAbsent(kind, k -> new ArrayList<>())
+          .add(new Member(memberElt));
+      }
+    }
+
+    /**
+     * Find a member declared by this type, or inherited from its supertypes.
+     *
+     * @param kind the member kind
+     * @param name the member name
+     * @param parameterSignature the parameter types of an executable member or {@code null} to match any
+     * @return the member or {@code null}
+     */
+    Element find(ElementKind kind, String name, String[] parameterSignature) {
+      Element found = findDeclared(kind, name, parameterSignature, false);
+      if (found == null && kind != ElementKind.CONSTRUCTOR) {
+        Set<TypeElement> visited = new HashSet<>();
+        visited.add(typeElt);
+        found = findInherited(kind, name, parameterSignature, visited);
+      }
+      return found;
+    }
+
+    private Element findInherited(ElementKind kind, String name, String[] parameterSignature, Set<TypeElement> visited) {
+      for (MemberIndex supertype : supertypes()) {
+        if (visited.add(supertype.typeElt)) {
+          Element found = supertype.findDeclared(kind, name, parameterSignature, true);
+          if (found == null) {
+            found = supertype.findInherited(kind, name, parameterSignature, visited);
           }
-          if (!t1.equals(t2)) {
-            return false;
+          if (found != null) {
+            return found;
           }
         }
-        return true;
+      }
+      return null;
+    }
+
+    private Element findDeclared(ElementKind kind, String name, String[] parameterSignature, boolean inherited) {
+      Map<ElementKind, List<Member>> byKind = members.get(name);
+      if (byKind != null) {
+        List<Member> candidates = byKind.get(kind);
+        if (candidates != null) {
+          for (Member candidate : candidates) {
+            if (inherited && candidate.elt.getModifiers().contains(Modifier.PRIVATE)) {
+              continue;
+            }
+            if (parameterSignature == null || candidate.matches(parameterSignature)) {
+              return candidate.elt;
+            }
+          }
+        }
+      }
+      return null;
+    }
+
+    private List<MemberIndex> supertypes() {
+      if (supertypes == null) {
+        supertypes = new ArrayList<>();
+        for (TypeMirror supertype : typeUtils.directSupertypes(typeElt.asType())) {
+          if (supertype.getKind() == TypeKind.DECLARED) {
+            supertypes.add(memberIndex((TypeElement) ((DeclaredType) supertype).asElement()));
+          }
+        }
+      }
+      return supertypes;
+    }
+  }
+
+  /**
+   * A member with the qualified and simple names of its erased parameter types.
+   */
+  private class Member {
+
+    private final Element elt;
+    private final String[] qualifiedTypes;
+    private final String[] simpleTypes;
+
+    Member(Element elt) {
+      this.elt = elt;
+      if (elt instanceof ExecutableElement) {
+        ExecutableType erased = (ExecutableType) typeUtils.erasure(elt.asType());
+        List<? extends TypeMirror> parameterTypes = erased.getParameterTypes();
+        qualifiedTypes = new String[parameterTypes.size()];
+        simpleTypes = new String[parameterTypes.size()];
+        for (int i = 0;i < qualifiedTypes.length;i++) {
+          String qualifiedType = Helper.toString(parameterTypes.get(i));
+          qualifiedTypes[i] = qualifiedType;
+          simpleTypes[i] = qualifiedType.substring(qualifiedType.lastIndexOf('.') + 1);
+        }
       } else {
+        qualifiedTypes = null;
+        simpleTypes = null;
+      }
+    }
+
+    /**
+     * Match the parameters given the parameter type signature of an executable element. The parameter signature
+     * is a list of parameter types formatted as a signature, i.e all types are raw, or primitive, or arrays. Unqualified
+     * types are compared to the simple name of the parameter types.
+     *
+     * @param parameterSignature the parameter type names
+     * @return true when the parameters match
+     */
+    boolean matches(String[] parameterSignature) {
+      if (qualifiedTypes == null || qualifiedTypes.length != parameterSignature.length) {
         return false;
       }
-    };
+      for (int j = 0;j < parameterSignature.length;j++) {
+        String t = parameterSignature[j];
+        boolean match;
+        if (t.indexOf('.') == -1) {
+          match = simpleTypes[j].equals(t);
+        } else if (qualifiedTypes[j].indexOf('.') == -1) {
+          match = qualifiedTypes[j].equals(t.substring(t.lastIndexOf('.') + 1));
+        } else {
+          match = qualifiedTypes[j].equals(t);
+        }
+        if (!match) {
+          return false;
+        }
+      }
+      return true;
+    }
   }
 
   /**
@@ -174,26 +295,21 @@ class Helper {
 
   /**
    * Read the source code of the provided element, this returns the source of the entire related compilation unit.
+   * The source is shared with the other elements of the compilation unit and must not be modified.
    *
    * @param elt the element to load
    * @return the source
    */
   String readSource(Element elt) {
     CompilationUnitTree unit = docTrees.getPath(elt).getCompilationUnit();
-    StringBuilder source = new StringBuilder();
-    try(Reader reader = unit.getSourceFile().openReader(true)) {
-      char[] buffer = new char[256];
-      while (true) {
-        int len = reader.read(buffer);
-        if (len == -1) {
-          break;
-        }
-        source.append(buffer, 0, len);
+    JavaFileObject sourceFile = unit.getSourceFile();
+    return sourceCache.get(sourceFile.toUri(), uri -> {
+      try {
+        return sourceFile.getCharContent(true).toString();
+      } catch (IOException e) {
+        throw new DocGenException(elt, "Could not read source code of element " + elt);
       }
-      return source.toString();
-    } catch (IOException e) {
-      throw new DocGenException(elt, "Could not read source code of element " + elt);
-    }
+    });
   }
 
   /**
@@ -265,17 +381,17 @@ class Helper {
 
   public void filterLang(CharSequence csq, String lang, Appendable dst) {
     try {
-      Matcher matcher = Helper.LANG_PATTERN.matcher(csq);
       int prev = 0;
-      while (matcher.find()) {
-        dst.append(csq, prev, matcher.start());
-        if (matcher.group(1) != null) {
+      int start;
+      while ((start = Lexer.findLang(csq, prev)) != -1) {
+        dst.append(csq, prev, start);
+        if (Lexer.isEscapedLang(csq, start)) {
           // \$lang
           dst.append("$lang");
         } else {
           dst.append(lang);
         }
-        prev = matcher.end();
+        prev = Lexer.langEnd(csq, start);
       }
       dst.append(csq, prev, csq.length());
     } catch (IOException e) {
@@ -31,11 +31,13 @@ public class JavaDocGenerator implements DocGenerator {
 
   protected DocTrees docTrees;
   protected ProcessingEnvironment processingEnv;
+  protected JavacBroker broker;
 
   @Override
   public void init(ProcessingEnvironment env) {
     docTrees = DocTrees.instance(env);
     processingEnv = env;
+    broker = JavacBroker.get(env);
   }
 
   @Override
@@ -110,10 +112,12 @@ public class JavaDocGenerator implements DocGenerator {
   @Override
   public String renderSource(ExecutableElement elt, String source) {
     // Get block
-    TreePath path = docTrees.getPath(elt);
-    MethodTree methodTree = (MethodTree) path.getLeaf();
-    BlockTree blockTree = methodTree.getBody();
-    List<? extends StatementTree> statements = blockTree.getStatements();
+    TreePath path = broker.call(() -> docTrees.getPath(elt));
+    List<? extends StatementTree> statements = broker.call(() -> {
+      MethodTree methodTree = (MethodTree) path.getLeaf();
+      BlockTree blockTree = methodTree.getBody();
+      return blockTree.getStatements();
+    });
     if (statements.size() > 0) {
       return renderSource(path, statements, source);
     } else {
@@ -122,15 +126,33 @@ public class JavaDocGenerator implements DocGenerator {
   }
 
   public String renderSource(TypeElement elt, String source) {
-    TreePath path = docTrees.getPath(elt);
+    TreePath path = broker.call(() -> docTrees.getPath(elt));
     ClassTree classTree = (ClassTree) path.getLeaf();
     return renderSource(path, Collections.singletonList(classTree), source);
   }
 
   public String renderSource(TreePath path, List<? extends Tree> trees, String source) {
-    CompilationUnitTree unit = path.getCompilationUnit();
-    int from = (int) docTrees.getSourcePositions().getStartPosition(unit, trees.get(0));
-    int to = (int) docTrees.getSourcePositions().getEndPosition(unit, trees.get(trees.size() - 1));
+    // Source positions are computed by the compiler thread, the fragment is cropped by the caller
+    int[] bounds = broker.call(() -> {
+      CompilationUnitTree unit = path.getCompilationUnit();
+      int from = (int) docTrees.getSourcePositions().getStartPosition(unit, trees.get(0));
+      int to = (int) docTrees.getSourcePositions().getEndPosition(unit, trees.get(trees.size() - 1));
+      // Determine margin
+      int margin = Integer.MAX_VALUE;
+      LineMap lineMap = unit.getLineMap();
+      for (Tree statement : trees) {
+        int statementStart = (int) docTrees.getSourcePositions().getStartPosition(unit, statement);
+        int lineStart = statementStart;
+        while (lineMap.getLineNumber(statementStart) == lineMap.getLineNumber(lineStart - 1)) {
+          lineStart--;
+        }
+        margin = Math.min(margin, statementStart - lineStart);
+      }
+      return new int[] { from, to, margin };
+    });
+    int from = bounds[0];
+    int to = bounds[1];
+    int blockMargin = bounds[2];
     // Correct boundaries
     while (from > 1 && source.charAt(from - 1) != '\n') {
       from--;
@@ -139,17 +161,6 @@ public class JavaDocGenerator implements DocGenerator {
       to++;
     }
     String block = source.substring(from, to);
-    // Determine margin
-    int blockMargin = Integer.MAX_VALUE;
-    LineMap lineMap = unit.getLineMap();
-    for (Tree statement : trees) {
-      int statementStart = (int) docTrees.getSourcePositions().getStartPosition(unit, statement);
-      int lineStart = statementStart;
-      while (lineMap.getLineNumber(statementStart) == lineMap.getLineNumber(lineStart - 1)) {
-        lineStart--;
-      }
-      blockMargin = Math.min(blockMargin, statementStart - lineStart);
-    }
     // Crop the fragment
     StringBuilder fragment = new StringBuilder();
     for (Iterator<String> sc = new Scanner(block).useDelimiter("\n"); sc.hasNext(); ) {
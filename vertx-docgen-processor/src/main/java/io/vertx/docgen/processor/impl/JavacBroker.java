@@ -0,0 +1,122 @@
+package io.vertx.docgen.processor.impl;
+
+import javax.annotation.processing.ProcessingEnvironment;
+import java.lang.reflect.UndeclaredThrowableException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Confines the access to javac to the compiler thread. When generators render on worker threads
+ * (see the {@code docgen.parallelism} processor option), element and source lookups must be performed through
+ * {@link #call(Callable)}: the lookup is executed by the compiler thread and its result handed back to the worker.
+ * <p/>
+ * When no broker is registered for a processing environment, {@link #get(ProcessingEnvironment)} returns a broker
+ * executing the lookups on the calling thread.
+ */
+public class JavacBroker {
+
+  private static final Map<ProcessingEnvironment, JavacBroker> brokers = Collections.synchronizedMap(new WeakHashMap<>());
+
+  private static final JavacBroker DIRECT = new JavacBroker(null);
+
+  /**
+   * @param env the processing environment
+   * @return the broker of the processing environment
+   */
+  public static JavacBroker get(ProcessingEnvironment env) {
+    JavacBroker broker = brokers.get(env);
+    return broker != null ? broker : DIRECT;
+  }
+
+  static JavacBroker register(ProcessingEnvironment env) {
+    JavacBroker broker = new JavacBroker(Thread.currentThread());
+    brokers.put(env, broker);
+    return broker;
+  }
+
+  static void unregister(ProcessingEnvironment env) {
+    brokers.remove(env);
+  }
+
+  private final Thread javacThread;
+  private final BlockingQueue<Runnable> lookups = new LinkedBlockingQueue<>();
+
+  private JavacBroker(Thread javacThread) {
+    this.javacThread = javacThread;
+  }
+
+  /**
+   * Perform a lookup on the compiler thread, the calling thread is blocked until the lookup is done.
+   *
+   * @param lookup the lookup
+   * @return the lookup result
+   */
+  public <T> T call(Callable<T> lookup) {
+    if (javacThread == null || javacThread == Thread.currentThread()) {
+      try {
+        return lookup.call();
+      } catch (RuntimeException e) {
+        throw e;
+      } catch (Exception e) {
+        throw new UndeclaredThrowableException(e);
+      }
+    }
+    FutureTask<T> task = new FutureTask<>(lookup);
+    lookups.add(task);
+    try {
+      return task.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new UndeclaredThrowableException(e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      } else if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw new UndeclaredThrowableException(cause);
+    }
+  }
+
+  /**
+   * Wait for the completion of a future, the lookups of the workers are performed meanwhile. This must be called
+   * from the compiler thread.
+   *
+   * @param future the future to wait for
+   * @return the future result
+   */
+  <T> T join(CompletableFuture<T> future) {
+    while (!future.isDone()) {
+      try {
+        Runnable lookup = lookups.poll(10, TimeUnit.MILLISECONDS);
+        if (lookup != null) {
+          lookup.run();
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new UndeclaredThrowableException(e);
+      }
+    }
+    try {
+      return future.join();
+    } catch (CompletionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      } else if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw e;
+    }
+  }
+}
@@ -0,0 +1,124 @@
+package io.vertx.docgen.processor.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Find the content of the delimited {@literal [language, ...]} blocks of a document before it is rendered, the
+ * content of a block not matching a generator can be skipped since the {@link LanguageFilterPostProcessor} discards
+ * it. The declaration and the delimiters are kept so the post-processor still sees the block.
+ * <p/>
+ * The document is scanned like the post-processors scan the rendered document, text that is only known after
+ * rendering (links, includes, variables, ...) is represented by the {@link #OPAQUE} char. Lines containing such text
+ * are never considered as block declarations or delimiters, and the scan stops when such a line could be the
+ * declaration of a post-processor block. A line such as {@literal [source,$lang]} names a processor that is not a
+ * post-processor, it is not a block declaration whatever its attributes render to.
+ */
+class LanguageBlocks {
+
+  /**
+   * Represents text only known after rendering.
+   */
+  static final char OPAQUE = '\uFFFF';
+
+  static final String LANGUAGE = "language";
+
+  /**
+   * The content of a language block.
+   */
+  static class Region {
+
+    final int start;
+    final int end;
+    final String[] languages;
+
+    Region(int start, int end, String[] languages) {
+      this.start = start;
+      this.end = end;
+      this.languages = languages;
+    }
+  }
+
+  /**
+   * Scan the language blocks of a document.
+   *
+   * @param s the document
+   * @param isPostProcessor whether a name is a post-processor
+   * @return the content of each language block
+   */
+  static List<Region> scan(CharSequence s, Predicate<String> isPostProcessor) {
+    List<Region> regions = new ArrayList<>();
+    List<Integer> starts = new ArrayList<>();
+    starts.add(0);
+    for (int i = 0; i < s.length(); i++) {
+      if (s.charAt(i) == '\n') {
+        starts.add(i + 1);
+      }
+    }
+    int count = starts.size();
+    int i = 0;
+    while (i < count) {
+      String line = line(s, starts, i).trim();
+      if (!isPlain(line)) {
+        if (line.startsWith("[")) {
+          int to = line.length();
+          for (char delimiter : new char[]{',', ']'}) {
+            int index = line.indexOf(delimiter);
+            if (index != -1 && index < to) {
+              to = index;
+            }
+          }
+          String name = line.substring(1, to).trim();
+          if (!isPlain(name) || to == line.length() || isPostProcessor.test(name)) {
+            // Could be a post-processor block declaration once rendered
+            break;
+          }
+        }
+        i++;
+        continue;
+      }
+      if (!PostProcessor.isBlockDeclaration(line) || !isPostProcessor.test(PostProcessor.getProcessorName(line))) {
+        i++;
+        continue;
+      }
+      String name = PostProcessor.getProcessorName(line);
+      String[] attributes = PostProcessor.getProcessorAttributes(line);
+      if (i + 1 == count) {
+        break;
+      }
+      String next = line(s, starts, i + 1).trim();
+      if (!isPlain(next)) {
+        break;
+      }
+      if (!next.equals("----")) {
+        // Block without delimiters (1 line only)
+        i += 2;
+        continue;
+      }
+      int end = i + 2;
+      while (end < count && !line(s, starts, end).trim().equals("----")) {
+        end++;
+      }
+      if (end == count) {
+        // Unterminated block
+        break;
+      }
+      if (name.equalsIgnoreCase(LANGUAGE) && attributes.length > 0 && end > i + 2) {
+        regions.add(new Region(starts.get(i + 2), starts.get(end), attributes));
+      }
+      i = end + 1;
+    }
+    return regions;
+  }
+
+  private static String line(CharSequence s, List<Integer> starts, int index) {
+    int start = starts.get(index);
+    int end = index + 1 < starts.size() ? starts.get(index + 1) - 1 : s.length();
+    return s.subSequence(start, end).toString();
+  }
+
+  private static boolean isPlain(String line) {
+    return line.indexOf(OPAQUE) == -1 && line.indexOf('$') == -1;
+  }
+}
@@ -1,26 +1,27 @@
 package io.vertx.docgen.processor.impl;
 
+import java.io.IOException;
+
 /**
  * A post processor filtering out content not matching the current processor language.
  */
-public class LanguageFilterPostProcessor implements PostProcessor {
+public class LanguageFilterPostProcessor implements StreamingPostProcessor {
   @Override
   public String getName() {
     return "language";
   }
 
   @Override
-  public String process(String name, String content, String... args) {
+  public void process(String name, CharSequence content, Appendable out, String... args) throws IOException {
     if (args.length == 0) {
       throw new IllegalArgumentException("The post-processor '" + getName() + "' requires at least one argument");
     }
     if (matches(name, args)) {
-      return content;
+      out.append(content);
     }
-    return EMPTY_CONTENT;
   }
 
-  private boolean matches(String lang, String[] args) {
+  static boolean matches(String lang, String[] args) {
     for (String arg : args) {
       if (lang.equalsIgnoreCase(arg)) {
         return true;
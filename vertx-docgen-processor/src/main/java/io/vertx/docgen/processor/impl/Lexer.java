@@ -0,0 +1,287 @@
+package io.vertx.docgen.processor.impl;
+
+/**
+ * A single pass lexer for the docgen markup: the {@literal $lang} placeholder, the {@literal {@link}} tags of
+ * files, link signatures and post-processor block declarations. The lexer returns offsets into the scanned
+ * sequence and does not allocate.
+ * <p/>
+ * Each method matches exactly like the regular expression it documents.
+ */
+public final class Lexer {
+
+  private static final String LANG = "$lang";
+  private static final String LINK = "{@link";
+
+  private Lexer() {
+    // Avoid direct instantiation.
+  }
+
+  /**
+   * Find the next {@literal $lang} placeholder, like {@code (\\)?\$lang}. When the placeholder is escaped as
+   * {@literal \$lang} the token starts with the backslash.
+   *
+   * @param s the sequence
+   * @param from the index to start from
+   * @return the start of the token or {@code -1}
+   */
+  public static int findLang(CharSequence s, int from) {
+    int idx = indexOf(s, LANG, from);
+    if (idx > from && s.charAt(idx - 1) == '\\') {
+      return idx - 1;
+    }
+    return idx;
+  }
+
+  /**
+   * @return whether the {@literal $lang} token starting at {@code start} is escaped
+   */
+  public static boolean isEscapedLang(CharSequence s, int start) {
+    return s.charAt(start) == '\\';
+  }
+
+  /**
+   * @return the end of the {@literal $lang} token starting at {@code start}
+   */
+  public static int langEnd(CharSequence s, int start) {
+    return start + (isEscapedLang(s, start) ? 1 : 0) + LANG.length();
+  }
+
+  /**
+   * Find the next link tag, like {@code \{@link\s([^}]+)\}}. The link value starts at {@link #linkValueStart(int)}
+   * and ends at {@link #linkEnd(CharSequence, int)} minus one.
+   *
+   * @param s the sequence
+   * @param from the index to start from
+   * @return the start of the tag or {@code -1}
+   */
+  public static int findLink(CharSequence s, int from) {
+    int len = s.length();
+    while (true) {
+      int idx = indexOf(s, LINK, from);
+      if (idx == -1 || idx + LINK.length() >= len) {
+        return -1;
+      }
+      int value = linkValueStart(idx);
+      if (isWhitespace(s.charAt(value - 1))) {
+        int close = indexOf(s, '}', value);
+        if (close == -1) {
+          // No tag can be closed
+          return -1;
+        }
+        if (close > value) {
+          return idx;
+        }
+      }
+      from = idx + 1;
+    }
+  }
+
+  /**
+   * @return the start of the value of the link tag starting at {@code start}
+   */
+  public static int linkValueStart(int start) {
+    return start + LINK.length() + 1;
+  }
+
+  /**
+   * @return the end of the link tag starting at {@code start}
+   */
+  public static int linkEnd(CharSequence s, int start) {
+    return indexOf(s, '}', linkValueStart(start)) + 1;
+  }
+
+  /**
+   * Match the signature at the start of a link value, like finding
+   * {@code ^([$_\w]+\.)*[$_\w]+(?:#[$_\w]+(?:(?:\([^)]*)\)|$|(?= )))?}, the remaining of the value is the label.
+   *
+   * @param s the sequence
+   * @param from the start of the link value
+   * @param to the end of the link value
+   * @return the end of the signature or {@code -1}
+   */
+  public static int signatureEnd(CharSequence s, int from, int to) {
+    int pos = from;
+    int end = -1;
+    // The qualified name
+    while (true) {
+      int next = word(s, pos, to);
+      if (next == pos) {
+        break;
+      }
+      end = next;
+      if (next < to && s.charAt(next) == '.') {
+        pos = next + 1;
+      } else {
+        break;
+      }
+    }
+    if (end == -1) {
+      return -1;
+    }
+    // The optional member
+    if (end < to && s.charAt(end) == '#') {
+      int name = word(s, end + 1, to);
+      if (name > end + 1) {
+        if (name < to && s.charAt(name) == '(') {
+          int close = indexOf(s, ')', name + 1, to);
+          if (close != -1) {
+            return close + 1;
+          }
+        }
+        if (isEnd(s, name, to) || (name < to && s.charAt(name) == ' ')) {
+          return name;
+        }
+      }
+    }
+    return end;
+  }
+
+  /**
+   * Find the member of a signature, like finding
+   * {@code #(\p{javaJavaIdentifierStart}(?:\p{javaJavaIdentifierPart})*)(?:\((.*)\))?$}.
+   *
+   * @param s the signature
+   * @return the index of the {@literal #} char or {@code -1} when the signature does not designate a member
+   */
+  public static int findMember(CharSequence s) {
+    int len = s.length();
+    for (int idx = indexOf(s, '#', 0);idx != -1;idx = indexOf(s, '#', idx + 1)) {
+      int name = memberNameEnd(s, idx);
+      if (name > idx + 1 && (parametersEnd(s, name) != -1 || isEnd(s, name, len))) {
+        return idx;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * @return the end of the member name starting after the {@literal #} char at {@code start}
+   */
+  public static int memberNameEnd(CharSequence s, int start) {
+    int len = s.length();
+    int pos = start + 1;
+    if (pos >= len) {
+      return pos;
+    }
+    int cp = Character.codePointAt(s, pos);
+    if (!Character.isJavaIdentifierStart(cp)) {
+      return pos;
+    }
+    pos += Character.charCount(cp);
+    while (pos < len) {
+      cp = Character.codePointAt(s, pos);
+      if (!Character.isJavaIdentifierPart(cp)) {
+        break;
+      }
+      pos += Character.charCount(cp);
+    }
+    return pos;
+  }
+
+  /**
+   * @param s the signature
+   * @param start the end of the member name
+   * @return the index of the closing parenthesis of the member parameters or {@code -1} when the member has no
+   * parameters
+   */
+  public static int parametersEnd(CharSequence s, int start) {
+    int len = s.length();
+    if (start >= len || s.charAt(start) != '(') {
+      return -1;
+    }
+    // The parameters do not contain line terminators, the closing parenthesis is followed by the end
+    int limit = start + 1;
+    while (limit < len && !isLineTerminator(s.charAt(limit))) {
+      limit++;
+    }
+    for (int close = limit - 1;close > start && close >= len - 3;close--) {
+      if (s.charAt(close) == ')' && isEnd(s, close + 1, len)) {
+        return close;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * @return whether the line is a block declaration, like matching {@code \[.+\]}
+   */
+  public static boolean isBlockDeclaration(CharSequence line) {
+    int len = line.length();
+    if (len < 3 || line.charAt(0) != '[' || line.charAt(len - 1) != ']') {
+      return false;
+    }
+    for (int i = 1;i < len - 1;i++) {
+      if (isLineTerminator(line.charAt(i))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Like {@code $}: the end of the input, optionally followed by a final line terminator.
+   */
+  private static boolean isEnd(CharSequence s, int pos, int to) {
+    if (pos == to) {
+      return true;
+    }
+    if (pos == to - 1) {
+      char c = s.charAt(pos);
+      return isLineTerminator(c) && !(c == '\n' && pos > 0 && s.charAt(pos - 1) == '\r');
+    }
+    return pos == to - 2 && s.charAt(pos) == '\r' && s.charAt(pos + 1) == '\n';
+  }
+
+  /**
+   * The end of a run of {@code [$_\w]} chars.
+   */
+  private static int word(CharSequence s, int pos, int to) {
+    while (pos < to) {
+      char c = s.charAt(pos);
+      if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_' || c == '$') {
+        pos++;
+      } else {
+        break;
+      }
+    }
+    return pos;
+  }
+
+  private static boolean isLineTerminator(char c) {
+    return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+  }
+
+  private static boolean isWhitespace(char c) {
+    return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+  }
+
+  private static int indexOf(CharSequence s, char c, int from) {
+    return indexOf(s, c, from, s.length());
+  }
+
+  private static int indexOf(CharSequence s, char c, int from, int to) {
+    for (int i = from;i < to;i++) {
+      if (s.charAt(i) == c) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private static int indexOf(CharSequence s, String str, int from) {
+    int last = s.length() - str.length();
+    char first = str.charAt(0);
+    for (int i = from;i <= last;i++) {
+      if (s.charAt(i) == first) {
+        int j = 1;
+        while (j < str.length() && s.charAt(i + j) == str.charAt(j)) {
+          j++;
+        }
+        if (j == str.length()) {
+          return i;
+        }
+      }
+    }
+    return -1;
+  }
+}
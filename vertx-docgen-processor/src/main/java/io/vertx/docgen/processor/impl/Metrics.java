@@ -0,0 +1,280 @@
+package io.vertx.docgen.processor.impl;
+
+import java.io.FilterWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The time spent by the processor in each phase, per generator and per document, written as a JSON report for the
+ * {@literal docgen.metrics} option. When the option is absent the metrics are disabled and recording does nothing.
+ * <p/>
+ * Phases can be recorded concurrently by the workers. A phase records its self time: the phases ended on the same
+ * thread while it runs are subtracted, e.g a link including a package does not account the links of the package, so
+ * the totals of a document add up.
+ */
+class Metrics {
+
+  enum Phase {
+
+    DISCOVERY("discovery"),
+    SCAN("scan"),
+    RESOLVE("resolve"),
+    LINK("link"),
+    RENDER_SOURCE("renderSource"),
+    POST_PROCESS("postProcess"),
+    WRITE("write");
+
+    final String name;
+
+    Phase(String name) {
+      this.name = name;
+    }
+  }
+
+  /**
+   * The latencies of a phase, the histogram has a bucket per power of two nanoseconds.
+   */
+  private static class Stats {
+
+    private long count;
+    private long total;
+    private long max;
+    private final long[] histogram = new long[64];
+
+    synchronized void add(long nanos) {
+      nanos = Math.max(nanos, 0);
+      count++;
+      total += nanos;
+      max = Math.max(max, nanos);
+      histogram[nanos == 0 ? 0 : 63 - Long.numberOfLeadingZeros(nanos)]++;
+    }
+
+    synchronized void toJson(StringBuilder json) {
+      json.append("{\"count\":").append(count).append(",\"totalNanos\":").append(total).append(",\"maxNanos\":")
+        .append(max).append(",\"histogram\":[");
+      boolean first = true;
+      for (int i = 0;i < histogram.length;i++) {
+        if (histogram[i] > 0) {
+          json.append(first ? "" : ",").append("{\"upperNanos\":").append(i == 63 ? Long.MAX_VALUE : 1L << (i + 1))
+            .append(",\"count\":").append(histogram[i]).append("}");
+          first = false;
+        }
+      }
+      json.append("]}");
+    }
+  }
+
+  /**
+   * A writer measuring the time spent writing.
+   */
+  static class TimedWriter extends FilterWriter {
+
+    private long nanos;
+
+    TimedWriter(Writer out) {
+      super(out);
+    }
+
+    long nanos() {
+      return nanos;
+    }
+
+    @Override
+    public void write(int c) throws IOException {
+      long start = System.nanoTime();
+      out.write(c);
+      nanos += System.nanoTime() - start;
+    }
+
+    @Override
+    public void write(char[] cbuf, int off, int len) throws IOException {
+      long start = System.nanoTime();
+      out.write(cbuf, off, len);
+      nanos += System.nanoTime() - start;
+    }
+
+    @Override
+    public void write(String str, int off, int len) throws IOException {
+      long start = System.nanoTime();
+      out.write(str, off, len);
+      nanos += System.nanoTime() - start;
+    }
+
+    @Override
+    public void flush() throws IOException {
+      long start = System.nanoTime();
+      out.flush();
+      nanos += System.nanoTime() - start;
+    }
+
+    @Override
+    public void close() {
+      // The document writer is closed by the processor
+    }
+  }
+
+  private final Path file;
+  private final long created = System.nanoTime();
+  private final Map<Phase, Stats> phases = new EnumMap<>(Phase.class);
+  private final Map<String, Map<Phase, Stats>> generators = new ConcurrentHashMap<>();
+  private final Map<String, Map<Phase, Stats>> documents = new ConcurrentHashMap<>();
+  private final Map<String, Long> counters = new LinkedHashMap<>();
+  // The self time recorded by the phases ended on each thread
+  private final ThreadLocal<long[]> recorded = ThreadLocal.withInitial(() -> new long[1]);
+
+  /**
+   * @param file the report file or {@code null} to disable the metrics
+   */
+  Metrics(Path file) {
+    this.file = file;
+    for (Phase phase : Phase.values()) {
+      phases.put(phase, new Stats());
+    }
+  }
+
+  boolean enabled() {
+    return file != null;
+  }
+
+  /**
+   * @return the start of a phase, the time minus the self time recorded by the thread, the difference of two values
+   *         returned on the same thread is the time elapsed when no phase ended in between
+   */
+  long start() {
+    return file != null ? System.nanoTime() - recorded.get()[0] : 0;
+  }
+
+  /**
+   * Record the self time of a phase started at {@code start}, the time elapsed minus the self time of the phases ended
+   * on the same thread since then.
+   *
+   * @param phase the phase
+   * @param generator the generator name or {@code null}
+   * @param doc the document id or {@code null}
+   * @param start the value returned by {@link #start()}
+   */
+  void end(Phase phase, String generator, String doc, long start) {
+    if (file != null) {
+      long[] total = recorded.get();
+      long self = System.nanoTime() - total[0] - start;
+      total[0] += self;
+      add(phase, generator, doc, self);
+    }
+  }
+
+  /**
+   * Record the duration of a phase.
+   */
+  void add(Phase phase, String generator, String doc, long nanos) {
+    if (file != null) {
+      phases.get(phase).add(nanos);
+      if (generator != null) {
+        stats(generators, generator, phase).add(nanos);
+      }
+      if (doc != null) {
+        stats(documents, doc, phase).add(nanos);
+      }
+    }
+  }
+
+  private static Stats stats(Map<String, Map<Phase, Stats>> map, String key, Phase phase) {
+    Map<Phase, Stats> stats = map.computeIfAbsent(key, k -> new ConcurrentHashMap<>());
+    return stats.computeIfAbsent(phase, p -> new Stats());
+  }
+
+  /**
+   * Report a counter of the processor.
+   */
+  synchronized void counter(String name, long value) {
+    counters.put(name, value);
+  }
+
+  /**
+   * Write the report, does nothing when the metrics are disabled.
+   */
+  void write() throws IOException {
+    if (file == null) {
+      return;
+    }
+    StringBuilder json = new StringBuilder();
+    json.append("{\n  \"wallNanos\": ").append(System.nanoTime() - created).append(",\n  \"phases\": ");
+    phasesToJson(phases, json);
+    json.append(",\n  \"generators\": ");
+    groupToJson(generators, json);
+    json.append(",\n  \"documents\": ");
+    groupToJson(documents, json);
+    json.append(",\n  \"counters\": {");
+    synchronized (this) {
+      boolean first = true;
+      for (Map.Entry<String, Long> counter : counters.entrySet()) {
+        json.append(first ? "\n    " : ",\n    ");
+        string(counter.getKey(), json);
+        json.append(": ").append(counter.getValue());
+        first = false;
+      }
+    }
+    json.append("\n  }\n}\n");
+    Path parent = file.toAbsolutePath().getParent();
+    if (parent != null) {
+      Files.createDirectories(parent);
+    }
+    Files.write(file, json.toString().getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static void groupToJson(Map<String, Map<Phase, Stats>> group, StringBuilder json) {
+    json.append("{");
+    boolean first = true;
+    for (Map.Entry<String, Map<Phase, Stats>> entry : new TreeMap<>(group).entrySet()) {
+      json.append(first ? "\n    " : ",\n    ");
+      string(entry.getKey(), json);
+      json.append(": ");
+      phasesToJson(entry.getValue(), json);
+      first = false;
+    }
+    json.append("\n  }");
+  }
+
+  private static void phasesToJson(Map<Phase, Stats> stats, StringBuilder json) {
+    json.append("{");
+    boolean first = true;
+    for (Phase phase : Phase.values()) {
+      Stats s = stats.get(phase);
+      if (s != null) {
+        json.append(first ? "" : ", ").append('"').append(phase.name).append("\": ");
+        s.toJson(json);
+        first = false;
+      }
+    }
+    json.append("}");
+  }
+
+  private static void string(String s, StringBuilder json) {
+    json.append('"');
+    for (int i = 0;i < s.length();i++) {
+      char c = s.charAt(i);
+      switch (c) {
+        case '"':
+          json.append("\\\"");
+          break;
+        case '\\':
+          json.append("\\\\");
+          break;
+        default:
+          if (c < 0x20) {
+            json.append(String.format("\\u%04x", (int) c));
+          } else {
+            json.append(c);
+          }
+      }
+    }
+    json.append('"');
+  }
+}
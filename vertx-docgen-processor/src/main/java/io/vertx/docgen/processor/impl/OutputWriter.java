@@ -0,0 +1,147 @@
+package io.vertx.docgen.processor.impl;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Write an output file in UTF-8 through a temporary file renamed over the output when the output is committed, so
+ * readers never see a partial file. When the output already has the same content it is left untouched, otherwise the
+ * replaced output keeps its permissions.
+ */
+class OutputWriter extends DocOutput {
+
+  private final Path file;
+  private final Path tmp;
+  private final Writer writer;
+  private final AtomicInteger written;
+  private final AtomicInteger unchanged;
+  private boolean closed;
+
+  /**
+   * @param file the output file
+   * @param written incremented when the output is written
+   * @param unchanged incremented when the output is unchanged
+   */
+  OutputWriter(Path file, AtomicInteger written, AtomicInteger unchanged) throws IOException {
+    this.file = file;
+    // Files.createTempFile restricts the permissions to the owner, the output must be created like any other file
+    Path tmp;
+    OutputStream out;
+    while (true) {
+      tmp = file.resolveSibling("." + file.getFileName() + "." + Long.toHexString(ThreadLocalRandom.current().nextLong()) + ".tmp");
+      try {
+        out = Files.newOutputStream(tmp, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        break;
+      } catch (FileAlreadyExistsException ignore) {
+      }
+    }
+    this.tmp = tmp;
+    this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+    this.written = written;
+    this.unchanged = unchanged;
+  }
+
+  @Override
+  public void write(char[] cbuf, int off, int len) throws IOException {
+    writer.write(cbuf, off, len);
+  }
+
+  @Override
+  public void write(String str, int off, int len) throws IOException {
+    writer.write(str, off, len);
+  }
+
+  @Override
+  public void flush() throws IOException {
+    writer.flush();
+  }
+
+  @Override
+  public void commit() throws IOException {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    try {
+      writer.close();
+      if (isUnchanged()) {
+        unchanged.incrementAndGet();
+      } else {
+        PosixFileAttributeView view = Files.getFileAttributeView(file, PosixFileAttributeView.class);
+        if (view != null && Files.isRegularFile(file)) {
+          // Replacing the output keeps its permissions
+          Files.setPosixFilePermissions(tmp, view.readAttributes().permissions());
+        }
+        try {
+          Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+          Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+        written.incrementAndGet();
+      }
+    } finally {
+      Files.deleteIfExists(tmp);
+    }
+  }
+
+  /**
+   * Discard the content written so far, the output is left untouched.
+   */
+  @Override
+  public void abort() {
+    if (!closed) {
+      closed = true;
+      try {
+        writer.close();
+        Files.deleteIfExists(tmp);
+      } catch (IOException ignore) {
+      }
+    }
+  }
+
+  /**
+   * @return whether the output exists with the same content, the content is compared only when the sizes are equal
+   */
+  private boolean isUnchanged() throws IOException {
+    if (!Files.isRegularFile(file) || Files.size(file) != Files.size(tmp)) {
+      return false;
+    }
+    byte[] b1 = new byte[8192];
+    byte[] b2 = new byte[8192];
+    try (InputStream in1 = Files.newInputStream(file); InputStream in2 = Files.newInputStream(tmp)) {
+      while (true) {
+        int len = in1.read(b1);
+        if (len == -1) {
+          return in2.read() == -1;
+        }
+        int pos = 0;
+        while (pos < len) {
+          int n = in2.read(b2, pos, len - pos);
+          if (n == -1) {
+            return false;
+          }
+          pos += n;
+        }
+        for (int i = 0; i < len; i++) {
+          if (b1[i] != b2[i]) {
+            return false;
+          }
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,174 @@
+package io.vertx.docgen.processor.impl;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Substitute the variables and apply the post-processors on the content written line by line, the result is
+ * written to an appendable. Only the current line and the current post-processor block are retained.
+ * <p/>
+ * Like a document split on {@code \r?\n} and joined with {@code \n}: line terminators are normalized and trailing
+ * empty lines are dropped. The content is complete when the writer is closed, the appendable is not closed.
+ */
+class PostProcessingWriter extends Writer {
+
+  private final String name;
+  private final VariableSubstitution variables;
+  private final Consumer<String> unknownVariables;
+  private final Function<String, PostProcessor> postProcessors;
+  private final Appendable out;
+  private final StringBuilder line = new StringBuilder();
+  private int emptyLines;
+  private boolean first = true;
+  private boolean closed;
+
+  // The current block
+  private PostProcessor postProcessor;
+  private String[] attributes;
+  private final StringBuilder block = new StringBuilder();
+  private boolean startOfBlock;
+
+  /**
+   * @param name the generator name
+   * @param variables the variables to substitute or {@code null}
+   * @param unknownVariables called with the name of each unknown variable
+   * @param postProcessors the post-processor lookup
+   * @param out the output
+   */
+  PostProcessingWriter(String name, VariableSubstitution variables, Consumer<String> unknownVariables,
+                       Function<String, PostProcessor> postProcessors, Appendable out) {
+    this.name = name;
+    this.variables = variables;
+    this.unknownVariables = unknownVariables;
+    this.postProcessors = postProcessors;
+    this.out = out;
+  }
+
+  @Override
+  public void write(String str, int off, int len) throws IOException {
+    int end = off + len;
+    while (off < end) {
+      int idx = str.indexOf('\n', off);
+      if (idx == -1 || idx >= end) {
+        line.append(str, off, end);
+        break;
+      }
+      line.append(str, off, idx);
+      endOfLine(true);
+      off = idx + 1;
+    }
+  }
+
+  @Override
+  public void write(char[] cbuf, int off, int len) throws IOException {
+    int end = off + len;
+    int from = off;
+    for (int i = off; i < end; i++) {
+      if (cbuf[i] == '\n') {
+        line.append(cbuf, from, i - from);
+        endOfLine(true);
+        from = i + 1;
+      }
+    }
+    line.append(cbuf, from, end - from);
+  }
+
+  @Override
+  public void flush() {
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (!closed) {
+      closed = true;
+      endOfLine(false);
+      if (postProcessor != null) {
+        // Unterminated block
+        endOfBlock(block);
+      }
+    }
+  }
+
+  private void endOfLine(boolean terminated) throws IOException {
+    String s = line.toString();
+    line.setLength(0);
+    if (variables != null) {
+      s = variables.apply(s, unknownVariables);
+    }
+    int from = 0;
+    int idx;
+    // A variable value can contain line terminators
+    while ((idx = s.indexOf('\n', from)) != -1) {
+      line(s.substring(from, idx > from && s.charAt(idx - 1) == '\r' ? idx - 1 : idx));
+      from = idx + 1;
+    }
+    int to = s.length();
+    if (terminated && to > from && s.charAt(to - 1) == '\r') {
+      to--;
+    }
+    line(s.substring(from, to));
+  }
+
+  private void line(String l) throws IOException {
+    if (l.isEmpty()) {
+      // Dropped unless a non empty line follows
+      emptyLines++;
+    } else {
+      for (; emptyLines > 0; emptyLines--) {
+        process("");
+      }
+      process(l);
+    }
+  }
+
+  private void process(String l) throws IOException {
+    String trimmed = l.trim();
+    if (postProcessor == null) {
+      if (PostProcessor.isBlockDeclaration(trimmed)) {
+        postProcessor = postProcessors.apply(PostProcessor.getProcessorName(trimmed));
+        if (postProcessor != null) {
+          attributes = PostProcessor.getProcessorAttributes(trimmed);
+          startOfBlock = false;
+          return;
+        }
+      }
+      item(l);
+    } else if (!startOfBlock) {
+      if (trimmed.equals("----")) {
+        startOfBlock = true;
+      } else {
+        // Block without delimiters (1 line only)
+        endOfBlock(trimmed);
+      }
+    } else if (trimmed.equals("\\----")) {
+      // Escaped nested block
+      block.append("----").append("\n");
+    } else if (trimmed.equals("----")) {
+      endOfBlock(block);
+    } else {
+      block.append(trimmed).append("\n");
+    }
+  }
+
+  private void endOfBlock(CharSequence content) throws IOException {
+    PostProcessor processor = postProcessor;
+    postProcessor = null;
+    separator();
+    processor.process(name, content, out, attributes);
+    block.setLength(0);
+  }
+
+  private void item(String s) throws IOException {
+    separator();
+    out.append(s);
+  }
+
+  private void separator() throws IOException {
+    if (!first) {
+      out.append('\n');
+    }
+    first = false;
+  }
+}
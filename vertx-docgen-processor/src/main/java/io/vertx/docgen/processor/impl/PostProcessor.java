@@ -1,5 +1,6 @@
 package io.vertx.docgen.processor.impl;
 
+import java.io.IOException;
 import java.util.Arrays;
 import java.util.Iterator;
 import java.util.regex.Pattern;
@@ -17,8 +18,42 @@ public interface PostProcessor {
 
   String process(String name, String content, String... args);
 
+  /**
+   * A pure post-processor produces the same result for the same generator, block content and attributes, its results
+   * can be cached and reused for identical blocks, including across builds.
+   *
+   * @return whether the post-processor is pure, the default is {@code false}
+   */
+  default boolean isPure() {
+    return false;
+  }
+
+  /**
+   * The version of the post-processor implementation, the results of a pure post-processor persisted by a previous
+   * build are discarded when the version changes. The default is derived from the code of the post-processor class,
+   * a post-processor whose results depend on other code should return a version covering it.
+   *
+   * @return the version of the post-processor implementation
+   */
+  default String cacheVersion() {
+    return DocManifest.codeVersion(getClass());
+  }
+
+  /**
+   * Process a block and write the result, the default implementation appends the result of
+   * {@link #process(String, String, String...)}. The content is only valid during the call.
+   *
+   * @param name the generator name
+   * @param content the block content
+   * @param out the output
+   * @param args the block attributes
+   */
+  default void process(String name, CharSequence content, Appendable out, String... args) throws IOException {
+    out.append(process(name, content.toString(), args));
+  }
+
   static boolean isBlockDeclaration(String line) {
-    return BLOCK_DECLARATION.matcher(line).matches();
+    return Lexer.isBlockDeclaration(line);
   }
 
   static String getProcessorName(String line) {
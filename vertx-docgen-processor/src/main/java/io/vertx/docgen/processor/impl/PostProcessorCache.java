@@ -0,0 +1,122 @@
+package io.vertx.docgen.processor.impl;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Memoize the result of the {@link PostProcessor#isPure() pure} post-processors, keyed by the post-processor and its
+ * {@link PostProcessor#cacheVersion() version}, the generator name, the block attributes and the block content hash.
+ * <p/>
+ * The cache can be persisted in a file between builds, only the entries used by the build are saved. A file with
+ * another format version is ignored.
+ */
+class PostProcessorCache {
+
+  static final String FORMAT_KEY = "format", FORMAT = "2";
+
+  private final File file;
+  private final Properties previous = new Properties();
+  private final Map<String, String> used = new ConcurrentHashMap<>();
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+
+  /**
+   * @param file the file persisting the cache or {@code null}
+   */
+  PostProcessorCache(File file) {
+    this.file = file;
+    if (file != null && file.isFile()) {
+      try (InputStream in = new FileInputStream(file)) {
+        previous.load(in);
+      } catch (IOException ignore) {
+        previous.clear();
+      }
+      if (!FORMAT.equals(previous.getProperty(FORMAT_KEY))) {
+        previous.clear();
+      }
+    }
+  }
+
+  /**
+   * @return the memoizing post-processor, or the post-processor itself when it is not pure
+   */
+  PostProcessor wrap(PostProcessor postProcessor) {
+    if (postProcessor == null || !postProcessor.isPure()) {
+      return postProcessor;
+    }
+    String version = postProcessor.cacheVersion();
+    return new PostProcessor() {
+      @Override
+      public String getName() {
+        return postProcessor.getName();
+      }
+      @Override
+      public String cacheVersion() {
+        return version;
+      }
+      @Override
+      public boolean isPure() {
+        return true;
+      }
+      @Override
+      public String process(String name, String content, String... args) {
+        return postProcessor.process(name, content, args);
+      }
+      @Override
+      public void process(String name, CharSequence content, Appendable out, String... args) throws IOException {
+        String key = postProcessor.getClass().getName() + "|" + version + "|" + postProcessor.getName() + "|" + name + "|" +
+          String.join(",", args) + "|" + DocManifest.hash(content.toString());
+        String result = used.get(key);
+        if (result == null) {
+          result = previous.getProperty(key);
+          if (result == null) {
+            StringBuilder buffer = new StringBuilder();
+            postProcessor.process(name, content, buffer, args);
+            result = buffer.toString();
+            misses.incrementAndGet();
+          } else {
+            hits.incrementAndGet();
+          }
+          used.put(key, result);
+        } else {
+          hits.incrementAndGet();
+        }
+        out.append(result);
+      }
+    };
+  }
+
+  long hits() {
+    return hits.get();
+  }
+
+  long misses() {
+    return misses.get();
+  }
+
+  /**
+   * Save the entries used by this build when the cache is persisted.
+   */
+  void save() throws IOException {
+    if (file != null) {
+      Properties current = new Properties();
+      current.putAll(used);
+      current.setProperty(FORMAT_KEY, FORMAT);
+      File dir = file.getAbsoluteFile().getParentFile();
+      if (dir != null && !dir.exists() && !dir.mkdirs()) {
+        throw new IOException("Could not create dir " + dir.getAbsolutePath());
+      }
+      try (OutputStream out = new FileOutputStream(file)) {
+        current.store(out, "vertx-docgen post-processor cache");
+      }
+    }
+  }
+}
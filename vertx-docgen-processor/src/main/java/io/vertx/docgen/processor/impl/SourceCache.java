@@ -0,0 +1,76 @@
+package io.vertx.docgen.processor.impl;
+
+import java.net.URI;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * A bounded cache of compilation unit sources, the least recently used sources are evicted when the cached
+ * sources exceed the cache size.
+ */
+class SourceCache {
+
+  private final LinkedHashMap<URI, String> sources = new LinkedHashMap<>(16, 0.75f, true);
+  private final long maxSize;
+  private long size;
+  private long hits;
+  private long misses;
+  private long evictions;
+
+  /**
+   * @param maxSize the maximum size in bytes of the cached sources
+   */
+  SourceCache(long maxSize) {
+    this.maxSize = maxSize;
+  }
+
+  /**
+   * Get the source of a compilation unit, the source is loaded when it is not cached.
+   *
+   * @param uri the compilation unit uri
+   * @param loader the source loader
+   * @return the source, shared with other callers
+   */
+  String get(URI uri, Function<URI, String> loader) {
+    String source = sources.get(uri);
+    if (source != null) {
+      hits++;
+      return source;
+    }
+    misses++;
+    source = loader.apply(uri);
+    long sourceSize = sizeOf(source);
+    if (sourceSize <= maxSize) {
+      sources.put(uri, source);
+      size += sourceSize;
+      for (Iterator<Map.Entry<URI, String>> it = sources.entrySet().iterator();size > maxSize && it.hasNext();) {
+        size -= sizeOf(it.next().getValue());
+        it.remove();
+        evictions++;
+      }
+    }
+    return source;
+  }
+
+  private static long sizeOf(String source) {
+    return 2L * source.length();
+  }
+
+  long size() {
+    return size;
+  }
+
+  long hits() {
+    return hits;
+  }
+
+  long misses() {
+    return misses;
+  }
+
+  long evictions() {
+    return evictions;
+  }
+}
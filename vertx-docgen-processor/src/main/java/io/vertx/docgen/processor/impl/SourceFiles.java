@@ -0,0 +1,336 @@
+package io.vertx.docgen.processor.impl;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Discover the document files of the {@code docgen.source} option.
+ * <p/>
+ * A source is a file, a directory walked recursively or a glob such as {@code src/main/docs/**}{@code /*.adoc}
+ * matched against the paths relative to its directory part. A glob of a single path segment such as
+ * {@code src/main/docs/*} also matches directories, which are walked like a directory source. The files found by a
+ * walk are filtered by the include and exclude globs, hidden and editor temporary files are ignored and so are binary
+ * files. Directories are listed and files are checked and loaded in parallel, on virtual threads when the JVM provides
+ * them, the files are returned in a deterministic order.
+ */
+class SourceFiles {
+
+  /**
+   * The number of bytes read to detect binary files, like git does.
+   */
+  private static final int SNIFF_SIZE = 8000;
+
+  /**
+   * A discovered document file.
+   */
+  static class Source {
+
+    final File file;
+    final String relativePath;
+    final ByteBuffer content;
+
+    Source(File file, String relativePath, ByteBuffer content) {
+      this.file = file;
+      this.relativePath = relativePath;
+      this.content = content;
+    }
+  }
+
+  private final List<PathMatcher> includes;
+  private final List<PathMatcher> excludes;
+  private final AtomicInteger skipped = new AtomicInteger();
+  private int discovered;
+
+  /**
+   * @param includes the globs of the files to process or {@code null} to process all files
+   * @param excludes the globs of the files to ignore or {@code null}
+   */
+  SourceFiles(List<String> includes, List<String> excludes) {
+    this.includes = globs(includes);
+    this.excludes = globs(excludes);
+  }
+
+  /**
+   * @return the number of discovered files
+   */
+  int discovered() {
+    return discovered;
+  }
+
+  /**
+   * @return the number of files ignored by the walks
+   */
+  int skipped() {
+    return skipped.get();
+  }
+
+  /**
+   * Discover the files of the sources.
+   *
+   * @param sources the sources
+   * @return the files, in the order of the sources and sorted by relative path for each source
+   */
+  List<Source> discover(List<String> sources) throws IOException {
+    ExecutorService executor = newExecutor();
+    try {
+      List<CompletableFuture<List<Source>>> futures = new ArrayList<>();
+      for (String source : sources) {
+        futures.add(discover(source, executor));
+      }
+      List<Source> files = new ArrayList<>();
+      for (CompletableFuture<List<Source>> future : futures) {
+        try {
+          files.addAll(future.join());
+        } catch (CompletionException e) {
+          if (e.getCause() instanceof UncheckedIOException) {
+            throw ((UncheckedIOException) e.getCause()).getCause();
+          }
+          throw e;
+        }
+      }
+      discovered += files.size();
+      return files;
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  private CompletableFuture<List<Source>> discover(String source, ExecutorService executor) throws IOException {
+    int glob = globStart(source);
+    if (glob == -1) {
+      File file = new File(source);
+      if (file.isFile()) {
+        return CompletableFuture.supplyAsync(() -> Collections.singletonList(new Source(file, file.getName(), load(file.toPath()))), executor);
+      } else if (file.isDirectory()) {
+        return walk(file.toPath(), null, executor);
+      } else if (!file.exists()) {
+        throw new FileNotFoundException("Cannot process document " + source);
+      } else {
+        throw new IOException("Document " + file.getAbsolutePath() + " is not a file nor a dir");
+      }
+    }
+    Path dir = Paths.get(glob == 0 ? "." : source.substring(0, glob));
+    if (!Files.exists(dir)) {
+      // Reported like a missing path, a mistyped glob would otherwise silently produce no document
+      throw new FileNotFoundException("Cannot process document " + source + ", " + dir + " does not exist");
+    } else if (!Files.isDirectory(dir)) {
+      throw new IOException("Document " + source + " is not a glob of a dir");
+    }
+    String pattern = source.substring(glob);
+    if (pattern.indexOf('/') == -1 && pattern.indexOf(File.separatorChar) == -1 && !pattern.contains("**")) {
+      return match(dir, glob(pattern), executor);
+    }
+    return walk(dir, glob(pattern), executor);
+  }
+
+  /**
+   * Match the children of a dir with a single segment glob, the matched dirs are walked like a dir source.
+   */
+  private CompletableFuture<List<Source>> match(Path dir, PathMatcher pattern, ExecutorService executor) {
+    return CompletableFuture.supplyAsync(() -> list(dir), executor).thenCompose(children -> {
+      Queue<Source> found = new ConcurrentLinkedQueue<>();
+      List<CompletableFuture<List<Source>>> walks = new ArrayList<>();
+      List<CompletableFuture<Void>> tasks = new ArrayList<>();
+      for (Path child : children) {
+        if (!pattern.matches(child.getFileName())) {
+          continue;
+        }
+        if (Files.isDirectory(child, LinkOption.NOFOLLOW_LINKS)) {
+          if (!isHidden(child.getFileName().toString())) {
+            walks.add(walk(child, null, executor));
+          }
+        } else if (Files.isRegularFile(child)) {
+          CompletableFuture<Void> task = check(child, child.getFileName(), found, executor);
+          if (task != null) {
+            tasks.add(task);
+          }
+        }
+      }
+      tasks.addAll(walks.stream().map(walk -> walk.thenAccept(found::addAll)).collect(Collectors.toList()));
+      return CompletableFuture.allOf(tasks.toArray(new CompletableFuture[0])).thenApply(v -> {
+        List<Source> files = new ArrayList<>(found);
+        files.sort(Comparator.comparing(file -> file.file.getPath()));
+        return files;
+      });
+    });
+  }
+
+  private CompletableFuture<List<Source>> walk(Path root, PathMatcher pattern, ExecutorService executor) {
+    Queue<Source> found = new ConcurrentLinkedQueue<>();
+    return visit(root, root, pattern, found, executor).thenApply(v -> {
+      List<Source> files = new ArrayList<>(found);
+      files.sort(Comparator.comparing(file -> file.relativePath));
+      return files;
+    });
+  }
+
+  private CompletableFuture<Void> visit(Path root, Path dir, PathMatcher pattern, Queue<Source> found,
+                                        ExecutorService executor) {
+    return CompletableFuture.supplyAsync(() -> list(dir), executor).thenCompose(children -> {
+      List<CompletableFuture<Void>> tasks = new ArrayList<>();
+      for (Path child : children) {
+        String name = child.getFileName().toString();
+        if (Files.isDirectory(child, LinkOption.NOFOLLOW_LINKS)) {
+          if (!isHidden(name)) {
+            tasks.add(visit(root, child, pattern, found, executor));
+          }
+        } else if (Files.isRegularFile(child)) {
+          Path relativePath = root.relativize(child);
+          if (pattern != null && !pattern.matches(relativePath)) {
+            continue;
+          }
+          CompletableFuture<Void> task = check(child, relativePath, found, executor);
+          if (task != null) {
+            tasks.add(task);
+          }
+        }
+      }
+      return CompletableFuture.allOf(tasks.toArray(new CompletableFuture[0]));
+    });
+  }
+
+  /**
+   * Check a file found by a walk, the file content is loaded by the task so the compiler thread only scans it.
+   *
+   * @return the task adding the file to {@code found} unless it is binary, or {@code null} when the file is ignored
+   */
+  private CompletableFuture<Void> check(Path file, Path relativePath, Queue<Source> found, ExecutorService executor) {
+    if (isIgnored(file.getFileName().toString()) || !isIncluded(relativePath)) {
+      skipped.incrementAndGet();
+      return null;
+    }
+    return CompletableFuture.runAsync(() -> {
+      ByteBuffer content = load(file);
+      if (isBinary(content)) {
+        skipped.incrementAndGet();
+      } else {
+        found.add(new Source(file.toFile(), relativePath.toString(), content));
+      }
+    }, executor);
+  }
+
+  private static ByteBuffer load(Path file) {
+    try {
+      return FileDocScanner.load(file);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private boolean isIncluded(Path relativePath) {
+    if (!includes.isEmpty() && includes.stream().noneMatch(include -> include.matches(relativePath))) {
+      return false;
+    }
+    return excludes.stream().noneMatch(exclude -> exclude.matches(relativePath));
+  }
+
+  private static List<Path> list(Path dir) {
+    List<Path> children = new ArrayList<>();
+    try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+      stream.forEach(children::add);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return children;
+  }
+
+  private static boolean isHidden(String name) {
+    return name.startsWith(".");
+  }
+
+  /**
+   * @return whether the file is hidden or an editor temporary file
+   */
+  private static boolean isIgnored(String name) {
+    return isHidden(name) || name.endsWith("~") || (name.startsWith("#") && name.endsWith("#")) ||
+      name.endsWith(".swp") || name.endsWith(".swo") || name.endsWith(".tmp") || name.endsWith(".bak");
+  }
+
+  /**
+   * @return whether the first bytes of the content contain a {@code NUL} byte
+   */
+  private static boolean isBinary(ByteBuffer content) {
+    int len = Math.min(content.limit(), SNIFF_SIZE);
+    for (int i = 0;i < len;i++) {
+      if (content.get(i) == 0) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * @return the start of the first path segment containing a glob char or {@code -1}
+   */
+  private static int globStart(String source) {
+    for (int i = 0;i < source.length();i++) {
+      char c = source.charAt(i);
+      if (c == '*' || c == '?' || c == '[' || c == '{') {
+        int sep = Math.max(source.lastIndexOf('/', i), source.lastIndexOf(File.separatorChar, i));
+        return sep + 1;
+      }
+    }
+    return -1;
+  }
+
+  private static List<PathMatcher> globs(List<String> patterns) {
+    List<PathMatcher> matchers = new ArrayList<>();
+    if (patterns != null) {
+      for (String pattern : patterns) {
+        matchers.add(glob(pattern));
+      }
+    }
+    return matchers;
+  }
+
+  private static PathMatcher glob(String pattern) {
+    FileSystem fs = FileSystems.getDefault();
+    PathMatcher matcher = fs.getPathMatcher("glob:" + pattern);
+    if (pattern.startsWith("**/")) {
+      // Also match the files of the root directory
+      PathMatcher root = fs.getPathMatcher("glob:" + pattern.substring(3));
+      return path -> matcher.matches(path) || root.matches(path);
+    }
+    return matcher;
+  }
+
+  /**
+   * @return an executor running each task on a virtual thread when the JVM provides them, otherwise a pool of daemon
+   * threads
+   */
+  private static ExecutorService newExecutor() {
+    try {
+      return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+    } catch (ReflectiveOperationException e) {
+      AtomicInteger count = new AtomicInteger();
+      return Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), r -> {
+        Thread thread = new Thread(r, "vertx-docgen-discovery-" + count.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+      });
+    }
+  }
+}
@@ -0,0 +1,177 @@
+package io.vertx.docgen.processor.impl;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Keep the sealed text chunks of the {@link DocWriter} in memory up to a budget, the chunks sealed beyond the budget
+ * are written to a temporary file and memory-mapped when they are rendered. The chunks are stored as UTF-16 chars.
+ * <p/>
+ * Chunks are written by the compiler thread and can be read concurrently.
+ */
+class SpillStore {
+
+  /**
+   * The size of the file regions mapped for reading, a chunk crossing a region boundary is mapped on its own.
+   */
+  private static final long REGION_SIZE = 64 * 1024 * 1024;
+
+  /**
+   * A chunk written to the file.
+   */
+  class Chunk {
+
+    private final long position;
+    private final int length;
+
+    private Chunk(long position, int length) {
+      this.position = position;
+      this.length = length;
+    }
+
+    int length() {
+      return length;
+    }
+
+    /**
+     * @return the chunk text, mapped from the file
+     */
+    CharSequence load() {
+      return read(position, length);
+    }
+  }
+
+  private final long budget;
+  private long held;
+  private long peak;
+  private Path path;
+  private FileChannel channel;
+  private long size;
+  private final Map<Long, MappedByteBuffer> regions = new HashMap<>();
+  private long spilledChunks;
+  private long readBytes;
+
+  /**
+   * @param budget the maximum size in bytes of the chunks held in memory
+   */
+  SpillStore(long budget) {
+    this.budget = budget;
+  }
+
+  /**
+   * Store a sealed chunk.
+   *
+   * @param chunk the chunk
+   * @return the chunk when it is held in memory, otherwise the {@link Chunk} of the file
+   */
+  synchronized Object store(CharSequence chunk) {
+    long chunkSize = sizeOf(chunk.length());
+    if (held + chunkSize <= budget || chunkSize > Integer.MAX_VALUE) {
+      held += chunkSize;
+      peak = Math.max(peak, held);
+      return chunk;
+    }
+    try {
+      if (channel == null) {
+        path = Files.createTempFile("vertx-docgen", ".spill");
+        channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE,
+          StandardOpenOption.DELETE_ON_CLOSE);
+      }
+      ByteBuffer buffer = ByteBuffer.allocate((int) chunkSize);
+      buffer.asCharBuffer().append(chunk);
+      long position = size;
+      while (buffer.hasRemaining()) {
+        channel.write(buffer, position + buffer.position());
+      }
+      size += chunkSize;
+      spilledChunks++;
+      return new Chunk(position, chunk.length());
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Release the chunks of a rendered writer held in memory.
+   *
+   * @param length the number of released chars
+   */
+  synchronized void release(int length) {
+    held -= sizeOf(length);
+  }
+
+  private synchronized CharSequence read(long position, int length) {
+    long chunkSize = sizeOf(length);
+    readBytes += chunkSize;
+    try {
+      long start = position - position % REGION_SIZE;
+      ByteBuffer buffer;
+      if (position + chunkSize <= start + REGION_SIZE) {
+        MappedByteBuffer region = regions.get(start);
+        long regionSize = Math.min(REGION_SIZE, size - start);
+        if (region == null || region.capacity() < regionSize) {
+          // The region is mapped again when it grew
+          region = channel.map(FileChannel.MapMode.READ_ONLY, start, regionSize);
+          regions.put(start, region);
+        }
+        buffer = region.duplicate();
+        buffer.position((int) (position - start));
+        buffer.limit((int) (position - start + chunkSize));
+        buffer = buffer.slice();
+      } else {
+        buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, chunkSize);
+      }
+      return buffer.asCharBuffer();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private static long sizeOf(int length) {
+    return 2L * length;
+  }
+
+  synchronized long held() {
+    return held;
+  }
+
+  synchronized long peak() {
+    return peak;
+  }
+
+  synchronized long spilledChunks() {
+    return spilledChunks;
+  }
+
+  synchronized long spilledBytes() {
+    return size;
+  }
+
+  synchronized long readBytes() {
+    return readBytes;
+  }
+
+  /**
+   * Close and delete the file.
+   */
+  synchronized void close() throws IOException {
+    regions.clear();
+    if (channel != null) {
+      // The file is deleted on close, the mapped regions may still be reachable and prevent it on Windows
+      channel.close();
+      channel = null;
+      try {
+        Files.deleteIfExists(path);
+      } catch (IOException ignore) {
+      }
+    }
+  }
+}
@@ -0,0 +1,24 @@
+package io.vertx.docgen.processor.impl;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * A post processor writing its result to the document output, the block content is not copied to a string.
+ */
+public interface StreamingPostProcessor extends PostProcessor {
+
+  @Override
+  void process(String name, CharSequence content, Appendable out, String... args) throws IOException;
+
+  @Override
+  default String process(String name, String content, String... args) {
+    StringBuilder buffer = new StringBuilder();
+    try {
+      process(name, (CharSequence) content, buffer, args);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return buffer.toString();
+  }
+}
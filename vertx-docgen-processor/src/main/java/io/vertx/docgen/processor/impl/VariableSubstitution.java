@@ -0,0 +1,64 @@
+package io.vertx.docgen.processor.impl;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Replace the {@code ${name}} variables of a document in a single pass, {@code \${name}} is an escape
+ * producing {@code ${name}} when {@code name} is a variable. Unknown variables and their escapes are left as is.
+ */
+class VariableSubstitution {
+
+  private final Map<String, String> variables;
+
+  VariableSubstitution(Map<String, String> variables) {
+    this.variables = new HashMap<>(variables);
+  }
+
+  /**
+   * @param content the content
+   * @param unknown called with the name of each unknown variable
+   * @return the content with variable values
+   */
+  String apply(String content, Consumer<String> unknown) {
+    int from = content.indexOf("${");
+    if (from == -1) {
+      return content;
+    }
+    StringBuilder buffer = new StringBuilder(content.length());
+    int prev = 0;
+    while (from != -1) {
+      int end = content.indexOf('}', from + 2);
+      if (end == -1) {
+        break;
+      }
+      // The closest variable to the closing brace
+      from = content.lastIndexOf("${", end);
+      String name = content.substring(from + 2, end);
+      String value = variables.get(name);
+      if (from > 0 && content.charAt(from - 1) == '\\') {
+        if (value != null) {
+          // Escaped
+          buffer.append(content, prev, from - 1).append(content, from, end + 1);
+        } else {
+          // Not a variable, e.g a shell or Groovy expression
+          buffer.append(content, prev, end + 1);
+        }
+      } else {
+        if (value != null) {
+          buffer.append(content, prev, from).append(value);
+        } else {
+          if (name.length() > 0) {
+            unknown.accept(name);
+          }
+          buffer.append(content, prev, end + 1);
+        }
+      }
+      prev = end + 1;
+      from = content.indexOf("${", prev);
+    }
+    buffer.append(content, prev, content.length());
+    return buffer.toString();
+  }
+}
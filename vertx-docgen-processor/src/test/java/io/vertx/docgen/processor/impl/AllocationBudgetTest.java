@@ -0,0 +1,158 @@
+package io.vertx.docgen.processor.impl;
+
+import io.vertx.docgen.processor.JavaDocGenProcessor;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.element.TypeElement;
+import javax.tools.JavaCompiler;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Collections;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Check that the rendering paths allocate within a budget per operation, the allocations are measured with
+ * {@code com.sun.management.ThreadMXBean#getThreadAllocatedBytes} after a warmup. The budgets have a margin above the
+ * allocations measured when they were set, a change going over a budget should be looked at before raising it.
+ * <p>
+ * The allocations depend on the JIT and the agents attached to the JVM, the test is skipped when the JVM interprets
+ * the code or runs an agent (e.g code coverage) since the measures would not be representative.
+ */
+public class AllocationBudgetTest {
+
+  private static final int WARMUP = 2000;
+  private static final int ITERATIONS = 1000;
+
+  private static final String DOC;
+  private static final String LANG_DOC;
+  private static final String POST_PROCESSED_DOC;
+
+  static {
+    StringBuilder doc = new StringBuilder();
+    StringBuilder langDoc = new StringBuilder();
+    StringBuilder postProcessedDoc = new StringBuilder();
+    for (int i = 0;i < 100;i++) {
+      doc.append(i == 0 ? "" : " ").append("Line ").append(i).append(" of the documentation with `code` and text\n");
+      langDoc.append("Line ").append(i).append(" of the $lang documentation, \\$lang is kept\n");
+      postProcessedDoc.append("[language, java]\n----\nvertx.createHttpServer().listen(").append(i).append(");\n----\n")
+        .append("[language, js]\n----\nvertx.createHttpServer().listen(").append(i).append(");\n----\n");
+    }
+    DOC = doc.toString();
+    LANG_DOC = langDoc.toString();
+    POST_PROCESSED_DOC = postProcessedDoc.toString();
+  }
+
+  private com.sun.management.ThreadMXBean threads;
+
+  @Before
+  public void before() {
+    assumeTrue("The allocations are only representative with the JIT and without agent", isRepresentative());
+    ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+    assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+    threads = (com.sun.management.ThreadMXBean) bean;
+    assumeTrue(threads.isThreadAllocatedMemorySupported());
+    threads.setThreadAllocatedMemoryEnabled(true);
+  }
+
+  @Test
+  public void testDocWriterRender() {
+    // ~5KB of text, the builder growth and the rendered string
+    assertBudget("DocWriter render", 40_000, measure(() -> {
+      DocWriter writer = new DocWriter();
+      writer.write(DOC);
+      writer.render();
+    }));
+  }
+
+  @Test
+  public void testDocWriterRenderNested() {
+    assertBudget("DocWriter nested render", 12_000, measure(() -> {
+      DocWriter writer = new DocWriter();
+      for (int i = 0;i < 10;i++) {
+        DocWriter nested = new DocWriter();
+        nested.write(DOC, i * 100, 100);
+        writer.write(() -> nested);
+      }
+      writer.render();
+    }));
+  }
+
+  @Test
+  public void testProcessorPaths() throws Exception {
+    BudgetProcessor processor = new BudgetProcessor();
+    JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+    StandardJavaFileManager fileManager = compiler.getStandardFileManager(null, null, null);
+    File[] sources = new File("src/test/java/io/vertx/test/file").listFiles((dir, name) -> name.endsWith(".java"));
+    assertNotNull(sources);
+    JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager, null, Collections.singletonList("-proc:only"),
+      null, fileManager.getJavaFileObjects(sources));
+    task.setProcessors(Collections.singletonList(processor));
+    assertTrue(task.call());
+    assertBudget("filterLang", 10_000, processor.filterLang);
+    assertBudget("method link resolution", 4_000, processor.methodLink);
+    assertBudget("type link resolution", 1_000, processor.typeLink);
+    assertBudget("post-processing", 250_000, processor.postProcessing);
+  }
+
+  private class BudgetProcessor extends JavaDocGenProcessor {
+
+    private long filterLang = -1;
+    private long methodLink = -1;
+    private long typeLink = -1;
+    private long postProcessing = -1;
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+      if (postProcessing == -1 && helper != null) {
+        filterLang = measure(() -> helper.filterLang(LANG_DOC, "java", new StringBuilder(LANG_DOC.length())));
+        methodLink = measure(() -> helper.resolveLink("io.vertx.test.file.TheClass#m3(java.lang.String,boolean)"));
+        typeLink = measure(() -> helper.resolveLink("io.vertx.test.file.TheClass"));
+        postProcessing = measure(() -> applyPostProcessors("java", POST_PROCESSED_DOC));
+      }
+      return super.process(annotations, roundEnv);
+    }
+  }
+
+  /**
+   * @return whether the JVM compiles the code and runs without agent
+   */
+  private static boolean isRepresentative() {
+    if (System.getProperty("java.vm.info", "").contains("interpreted")) {
+      return false;
+    }
+    for (String arg : ManagementFactory.getRuntimeMXBean().getInputArguments()) {
+      if (arg.equals("-Xint") || arg.startsWith("-javaagent:") || arg.startsWith("-agentlib:") || arg.startsWith("-agentpath:")) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * @return the bytes allocated by the operation, after a warmup
+   */
+  private long measure(Runnable operation) {
+    for (int i = 0;i < WARMUP;i++) {
+      operation.run();
+    }
+    long thread = Thread.currentThread().getId();
+    long start = threads.getThreadAllocatedBytes(thread);
+    for (int i = 0;i < ITERATIONS;i++) {
+      operation.run();
+    }
+    return (threads.getThreadAllocatedBytes(thread) - start) / ITERATIONS;
+  }
+
+  private static void assertBudget(String name, long budget, long allocated) {
+    assertTrue(name + " was not measured", allocated >= 0);
+    assertTrue(name + " allocated " + allocated + " bytes per operation, the budget is " + budget, allocated <= budget);
+  }
+}
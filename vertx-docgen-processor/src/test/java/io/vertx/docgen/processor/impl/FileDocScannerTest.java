@@ -0,0 +1,71 @@
+package io.vertx.docgen.processor.impl;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class FileDocScannerTest {
+
+  private static final String DOC = "Doc for $lang {@link io.vertx.Foo}\n[language, js]\n----\njs only\n----\nend\n";
+
+  @Test
+  public void testSmallFileIsRead() throws Exception {
+    Path file = write("small.adoc", DOC);
+    ByteBuffer content = FileDocScanner.load(file);
+    assertFalse(content instanceof MappedByteBuffer);
+    assertScan(content, DOC);
+  }
+
+  @Test
+  public void testLargeFileIsMapped() throws Exception {
+    StringBuilder doc = new StringBuilder();
+    while (doc.length() < FileDocScanner.MAP_THRESHOLD) {
+      doc.append("Line of text\n");
+    }
+    doc.append(DOC);
+    Path file = write("large.adoc", doc.toString());
+    ByteBuffer content = FileDocScanner.load(file);
+    assertTrue(content instanceof MappedByteBuffer);
+    assertScan(content, doc.toString());
+  }
+
+  private static void assertScan(ByteBuffer content, String doc) {
+    // The content is shared by the generators
+    for (String lang : new String[]{"java", "js", "java"}) {
+      StringBuilder text = new StringBuilder();
+      List<String> links = new ArrayList<>();
+      FileDocScanner.scan(content, lang, name -> name.equals("language"), new FileDocScanner.Handler() {
+        @Override
+        public void text(CharSequence csq) {
+          text.append(csq);
+        }
+        @Override
+        public void link(String signature, String label) {
+          links.add(signature);
+          text.append("<link>");
+        }
+      });
+      String expected = doc.replace("$lang", lang).replace("{@link io.vertx.Foo}", "<link>");
+      if (!lang.equals("js")) {
+        expected = expected.replace("js only\n", "");
+      }
+      assertEquals(expected, text.toString());
+      assertEquals(1, links.size());
+    }
+  }
+
+  private static Path write(String name, String content) throws Exception {
+    File dir = new File("target/" + FileDocScannerTest.class.getSimpleName());
+    assertTrue(dir.isDirectory() || dir.mkdirs());
+    return Files.write(new File(dir, name).toPath(), content.getBytes(StandardCharsets.UTF_8));
+  }
+}
@@ -0,0 +1,55 @@
+package io.vertx.docgen.processor.impl;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.*;
+
+public class MetricsTest {
+
+  private static final long MILLIS = 1_000_000;
+
+  @Test
+  public void testNestedPhasesRecordSelfTime() throws Exception {
+    File file = new File("target/" + MetricsTest.class.getSimpleName() + "/metrics.json");
+    Metrics metrics = new Metrics(file.toPath());
+    long scan = metrics.start();
+    Thread.sleep(20);
+    long link = metrics.start();
+    Thread.sleep(20);
+    long include = metrics.start();
+    Thread.sleep(100);
+    metrics.end(Metrics.Phase.LINK, "java", "the-doc", include);
+    metrics.end(Metrics.Phase.LINK, "java", "the-doc", link);
+    metrics.end(Metrics.Phase.SCAN, "java", "the-doc", scan);
+    metrics.write();
+    String report = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+    String doc = report.substring(report.indexOf("\"the-doc\": {"));
+    long scanNanos = total(doc, "scan");
+    long linkNanos = total(doc, "link");
+    assertTrue(report, scanNanos >= 20 * MILLIS && scanNanos < 100 * MILLIS);
+    assertTrue(report, linkNanos >= 120 * MILLIS);
+    assertTrue(report, doc.contains("\"link\": {\"count\":2,"));
+    // The enclosing link does not account the nested link
+    long includeNanos = maxLink(doc);
+    assertTrue(report, includeNanos >= 100 * MILLIS);
+    assertTrue(report, linkNanos - includeNanos < 100 * MILLIS);
+  }
+
+  private static long total(String report, String phase) {
+    Matcher matcher = Pattern.compile("\"" + phase + "\": \\{\"count\":\\d+,\"totalNanos\":(\\d+)").matcher(report);
+    assertTrue(report, matcher.find());
+    return Long.parseLong(matcher.group(1));
+  }
+
+  private static long maxLink(String report) {
+    Matcher matcher = Pattern.compile("\"link\": \\{\"count\":\\d+,\"totalNanos\":\\d+,\"maxNanos\":(\\d+)").matcher(report);
+    assertTrue(report, matcher.find());
+    return Long.parseLong(matcher.group(1));
+  }
+}
@@ -0,0 +1,74 @@
+package io.vertx.docgen.processor.impl;
+
+import org.junit.Test;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+import static org.junit.Assert.*;
+
+public class SourceCacheTest {
+
+  private final List<URI> loaded = new ArrayList<>();
+
+  private final Function<URI, String> loader = uri -> {
+    loaded.add(uri);
+    return uri.getSchemeSpecificPart();
+  };
+
+  @Test
+  public void testHitsAndMisses() {
+    SourceCache cache = new SourceCache(1024);
+    assertEquals("aaaa", cache.get(URI.create("s:aaaa"), loader));
+    assertEquals("aaaa", cache.get(URI.create("s:aaaa"), loader));
+    assertEquals(1, loaded.size());
+    assertEquals(1, cache.hits());
+    assertEquals(1, cache.misses());
+    assertEquals(0, cache.evictions());
+    assertEquals(8, cache.size());
+  }
+
+  @Test
+  public void testEvictLeastRecentlyUsed() {
+    // Sources are accounted 2 bytes per char, the cache holds 10 chars
+    SourceCache cache = new SourceCache(20);
+    URI a = URI.create("s:aaaa");
+    URI b = URI.create("s:bbb");
+    URI c = URI.create("s:cccc");
+    cache.get(a, loader);
+    cache.get(b, loader);
+    // a is now more recently used than b
+    cache.get(a, loader);
+    cache.get(c, loader);
+    assertEquals(1, cache.evictions());
+    assertEquals(16, cache.size());
+    loaded.clear();
+    cache.get(a, loader);
+    cache.get(c, loader);
+    assertEquals(0, loaded.size());
+    cache.get(b, loader);
+    assertEquals(1, loaded.size());
+    // b evicts a, the least recently used
+    assertEquals(2, cache.evictions());
+    assertEquals(3, cache.hits());
+    assertEquals(4, cache.misses());
+    assertEquals(14, cache.size());
+  }
+
+  @Test
+  public void testSourceLargerThanCacheIsNotCached() {
+    SourceCache cache = new SourceCache(10);
+    URI a = URI.create("s:aa");
+    URI large = URI.create("s:llllllllll");
+    cache.get(a, loader);
+    assertEquals("llllllllll", cache.get(large, loader));
+    assertEquals("llllllllll", cache.get(large, loader));
+    assertEquals(3, loaded.size());
+    assertEquals(0, cache.evictions());
+    assertEquals(4, cache.size());
+    cache.get(a, loader);
+    assertEquals(1, cache.hits());
+  }
+}
@@ -0,0 +1,111 @@
+package io.vertx.docgen.processor.impl;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class SpillStoreTest {
+
+  private static final long REGION_SIZE = 64 * 1024 * 1024;
+  // An odd length so the chunks do not align with the regions
+  private static final int LENGTH = 1_000_003;
+
+  @Test
+  public void testBudget() throws Exception {
+    SpillStore store = new SpillStore(20);
+    try {
+      assertEquals("0123456789", store.store("0123456789"));
+      assertEquals(20, store.held());
+      Object spilled = store.store("abc");
+      assertTrue(spilled instanceof SpillStore.Chunk);
+      assertEquals("abc", ((SpillStore.Chunk) spilled).load().toString());
+      store.release(10);
+      assertEquals(0, store.held());
+      assertEquals("def", store.store("def"));
+      assertEquals(20, store.peak());
+      assertEquals(1, store.spilledChunks());
+      assertEquals(6, store.spilledBytes());
+    } finally {
+      store.close();
+    }
+  }
+
+  @Test
+  public void testRoundTripAcrossRegions() throws Exception {
+    SpillStore store = new SpillStore(0);
+    try {
+      List<SpillStore.Chunk> chunks = new ArrayList<>();
+      boolean crossing = false;
+      for (int i = 0;store.spilledBytes() <= REGION_SIZE + 4L * LENGTH;i++) {
+        long position = store.spilledBytes();
+        SpillStore.Chunk chunk = (SpillStore.Chunk) store.store(new Text(i, LENGTH));
+        crossing |= position / REGION_SIZE != (position + 2L * LENGTH - 1) / REGION_SIZE;
+        chunks.add(chunk);
+        if (i % 8 == 0) {
+          // Map the first region before the file grows, it is mapped again by the next reads
+          assertText(0, chunks.get(0).load());
+          assertText(i, chunk.load());
+        }
+      }
+      assertTrue(crossing);
+      for (int i = 0;i < chunks.size();i++) {
+        assertText(i, chunks.get(i).load());
+      }
+      assertEquals(chunks.size(), store.spilledChunks());
+      assertEquals(0, store.held());
+    } finally {
+      store.close();
+    }
+  }
+
+  private static void assertText(int index, CharSequence actual) {
+    Text expected = new Text(index, LENGTH);
+    assertEquals(LENGTH, actual.length());
+    for (int i = 0;i < actual.length();i++) {
+      if (expected.charAt(i) != actual.charAt(i)) {
+        fail("Chunk " + index + " differs at " + i);
+      }
+    }
+  }
+
+  /**
+   * The text of a chunk, computed from its index.
+   */
+  private static class Text implements CharSequence {
+
+    private final int index;
+    private final int length;
+
+    Text(int index, int length) {
+      this.index = index;
+      this.length = length;
+    }
+
+    @Override
+    public int length() {
+      return length;
+    }
+
+    @Override
+    public char charAt(int i) {
+      return (char) ('a' + (i + 7 * index) % 26);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+      return toString().substring(start, end);
+    }
+
+    @Override
+    public String toString() {
+      StringBuilder buffer = new StringBuilder(length);
+      for (int i = 0;i < length;i++) {
+        buffer.append(charAt(i));
+      }
+      return buffer.toString();
+    }
+  }
+}
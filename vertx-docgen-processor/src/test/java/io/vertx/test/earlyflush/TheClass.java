@@ -0,0 +1,4 @@
+package io.vertx.test.earlyflush;
+
+public class TheClass {
+}
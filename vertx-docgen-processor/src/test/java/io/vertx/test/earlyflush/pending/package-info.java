@@ -0,0 +1,7 @@
+/**
+ * {@link io.vertx.test.earlyflush.GeneratedClass}
+ */
+@Document
+package io.vertx.test.earlyflush.pending;
+
+import io.vertx.docgen.Document;
@@ -0,0 +1,7 @@
+/**
+ * {@link io.vertx.test.earlyflush.TheClass}
+ */
+@Document
+package io.vertx.test.earlyflush.resolved;
+
+import io.vertx.docgen.Document;
@@ -0,0 +1,4 @@
+/**
+ * a_{@link io.vertx.test.includediamond.common}
+ */
+package io.vertx.test.includediamond.a;
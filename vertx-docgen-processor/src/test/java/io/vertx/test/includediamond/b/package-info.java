@@ -0,0 +1,4 @@
+/**
+ * b_{@link io.vertx.test.includediamond.common}
+ */
+package io.vertx.test.includediamond.b;
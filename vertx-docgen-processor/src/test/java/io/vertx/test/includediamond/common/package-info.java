@@ -0,0 +1,4 @@
+/**
+ * common_content
+ */
+package io.vertx.test.includediamond.common;
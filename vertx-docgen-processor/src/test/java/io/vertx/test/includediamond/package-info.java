@@ -0,0 +1,7 @@
+/**
+ * {@link io.vertx.test.includediamond.a}{@link io.vertx.test.includediamond.b}
+ */
+@Document
+package io.vertx.test.includediamond;
+
+import io.vertx.docgen.Document;
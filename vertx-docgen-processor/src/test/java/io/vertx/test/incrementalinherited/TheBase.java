@@ -0,0 +1,7 @@
+package io.vertx.test.incrementalinherited;
+
+public class TheBase {
+
+  public void m(String arg) {}
+
+}
@@ -0,0 +1,5 @@
+package io.vertx.test.incrementalinherited;
+
+public class TheClass extends TheBase {
+
+}
@@ -0,0 +1,7 @@
+/**
+ * {@link io.vertx.test.incrementalinherited.TheClass#m(String)}
+ */
+@Document
+package io.vertx.test.incrementalinherited;
+
+import io.vertx.docgen.Document;
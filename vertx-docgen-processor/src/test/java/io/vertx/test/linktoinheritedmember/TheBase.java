@@ -0,0 +1,10 @@
+package io.vertx.test.linktoinheritedmember;
+
+public class TheBase {
+
+  public String f;
+
+  public void m(String arg) {}
+  public void m(long arg) {}
+
+}
@@ -0,0 +1,7 @@
+package io.vertx.test.linktoinheritedmember;
+
+public class TheClass extends TheBase implements TheInterface {
+
+  public void m(int arg) {}
+
+}
@@ -0,0 +1,7 @@
+package io.vertx.test.linktoinheritedmember;
+
+public interface TheInterface {
+
+  default void i() {}
+
+}
@@ -0,0 +1,12 @@
+/**
+ *{@link io.vertx.test.linktoinheritedmember.TheClass#m}
+ *{@link io.vertx.test.linktoinheritedmember.TheClass#m(int)}
+ *{@link io.vertx.test.linktoinheritedmember.TheClass#m(String)}
+ *{@link io.vertx.test.linktoinheritedmember.TheClass#f}
+ *{@link io.vertx.test.linktoinheritedmember.TheClass#i()}
+ *{@link io.vertx.test.linktoinheritedmember.TheClass#hashCode()}
+ */
+@Document
+package io.vertx.test.linktoinheritedmember;
+
+import io.vertx.docgen.Document;
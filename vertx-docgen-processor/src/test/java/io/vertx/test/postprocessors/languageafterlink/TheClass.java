@@ -0,0 +1,4 @@
+package io.vertx.test.postprocessors.languageafterlink;
+
+public class TheClass {
+}
@@ -0,0 +1,10 @@
+/**
+ * {@link io.vertx.test.postprocessors.languageafterlink.TheClass}[language, javascript]
+ * ----
+ * javascript
+ * ----
+ */
+@Document
+package io.vertx.test.postprocessors.languageafterlink;
+
+import io.vertx.docgen.Document;
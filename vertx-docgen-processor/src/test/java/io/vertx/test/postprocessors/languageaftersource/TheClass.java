@@ -0,0 +1,4 @@
+package io.vertx.test.postprocessors.languageaftersource;
+
+public class TheClass {
+}
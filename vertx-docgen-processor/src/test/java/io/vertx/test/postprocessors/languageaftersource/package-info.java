@@ -0,0 +1,16 @@
+/**
+ * [source,$lang]
+ * ----
+ * {@link io.vertx.test.postprocessors.languageaftersource.TheClass}
+ * ----
+ *
+ * [language, javascript]
+ * ----
+ * javascript {@link io.vertx.test.postprocessors.languageaftersource.DoesNotExist}
+ * ----
+ * after
+ */
+@Document
+package io.vertx.test.postprocessors.languageaftersource;
+
+import io.vertx.docgen.Document;
@@ -0,0 +1,4 @@
+package io.vertx.test.postprocessors.languagelinks;
+
+public class TheClass {
+}
@@ -0,0 +1,16 @@
+/**
+ * [language, java]
+ * ----
+ * java {@link io.vertx.test.postprocessors.languagelinks.TheClass}
+ * ----
+ *
+ * [language, javascript]
+ * ----
+ * javascript {@link io.vertx.test.postprocessors.languagelinks.DoesNotExist}
+ * ----
+ * after
+ */
+@Document
+package io.vertx.test.postprocessors.languagelinks;
+
+import io.vertx.docgen.Document;
@@ -0,0 +1,24 @@
+/**
+ * [upper]
+ * ----
+ * shared block
+ * ----
+ *
+ * [upper]
+ * ----
+ * shared block
+ * ----
+ *
+ * [upper, a]
+ * ----
+ * shared block
+ * ----
+ *
+ * [upper]
+ * ----
+ * other block
+ * ----
+ */
+@Document() package io.vertx.test.postprocessors.pure;
+
+import io.vertx.docgen.Document;
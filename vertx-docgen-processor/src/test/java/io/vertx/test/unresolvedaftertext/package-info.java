@@ -0,0 +1,9 @@
+/**
+ * Some text streamed before the link
+ *
+ * {@link io.vertx.test.unresolvedaftertext.DoesNotExist}
+ */
+@Document
+package io.vertx.test.unresolvedaftertext;
+
+import io.vertx.docgen.Document;
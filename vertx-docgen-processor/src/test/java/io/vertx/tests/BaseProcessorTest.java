@@ -1,6 +1,8 @@
 package io.vertx.tests;
 
 import io.vertx.docgen.Source;
+import io.vertx.docgen.processor.JavaDocGenProcessor;
+import io.vertx.docgen.processor.impl.DocGenerator;
 import io.vertx.docgen.processor.impl.PostProcessor;
 import org.junit.Test;
 
@@ -9,23 +11,38 @@ import javax.annotation.processing.Filer;
 import javax.annotation.processing.Processor;
 import javax.annotation.processing.RoundEnvironment;
 import javax.lang.model.element.Element;
+import javax.lang.model.element.ExecutableElement;
 import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.tools.Diagnostic;
 import javax.tools.JavaFileObject;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.Writer;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
 import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.SimpleFileVisitor;
 import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
 import java.util.*;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
 
 import static org.hamcrest.CoreMatchers.containsString;
 import static org.hamcrest.CoreMatchers.not;
 import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
 
 /**
  * @author <a href="mailto:julien@julienviet.com">Julien Viet</a>
@@ -37,11 +54,173 @@ public class BaseProcessorTest {
     assertEquals("before_includesub_contentafter_include", assertDoc("io.vertx.test.includepkg"));
   }
 
+  @Test
+  public void testIncludeDiamond() throws Exception {
+    assertEquals("a_common_contentb_common_content", assertDoc("io.vertx.test.includediamond"));
+  }
+
+  @Test
+  public void testIncremental() throws Exception {
+    Compiler<JavaDocGenProcessor> compiler = buildCompiler(new JavaDocGenProcessor(), "io.vertx.test.includepkg");
+    File output = new File(compiler.classOutput.getParentFile(), "docs");
+    compiler.setOption("docgen.output", output.getAbsolutePath());
+    compiler.setOption("docgen.incremental", "true");
+    compiler.assertCompile();
+    File doc = new File(output, "io.vertx.test.includepkg.adoc");
+    assertEquals("before_includesub_contentafter_include", new String(Files.readAllBytes(doc.toPath())));
+    assertTrue(new File(output, ".docgen-manifest").isFile());
+
+    // Unchanged inputs : the document is not generated again
+    Files.write(doc.toPath(), "stale".getBytes());
+    compiler = recompile(compiler);
+    assertEquals("stale", new String(Files.readAllBytes(doc.toPath())));
+
+    // Change an included package
+    File sub = compiler.sources.stream().filter(f -> f.getPath().contains("sub")).findFirst().get();
+    Files.write(sub.toPath(), new String(Files.readAllBytes(sub.toPath())).replace("sub_content", "sub_changed").getBytes());
+    recompile(compiler);
+    assertEquals("before_includesub_changedafter_include", new String(Files.readAllBytes(doc.toPath())));
+  }
+
+  @Test
+  public void testIncrementalUnreadableSource() throws Exception {
+    Compiler<JavaDocGenProcessor> compiler = buildCompiler(new JavaDocGenProcessor(), "io.vertx.test.includepkg");
+    File output = new File(compiler.classOutput.getParentFile(), "docs");
+    compiler.setOption("docgen.output", output.getAbsolutePath());
+    compiler.setOption("docgen.incremental", "true");
+    compiler.assertCompile();
+    // A source that cannot be read is recorded as such, it does not invalidate the output
+    File manifest = new File(output, ".docgen-manifest");
+    Properties recorded = new Properties();
+    try (InputStream in = new FileInputStream(manifest)) {
+      recorded.load(in);
+    }
+    String key = "java:io.vertx.test.includepkg.adoc";
+    recorded.setProperty(key, recorded.getProperty(key) + "\n- source:" + new File(output, "missing.java").toURI());
+    try (OutputStream out = new FileOutputStream(manifest)) {
+      recorded.store(out, null);
+    }
+    File doc = new File(output, "io.vertx.test.includepkg.adoc");
+    Files.write(doc.toPath(), "stale".getBytes());
+    recompile(compiler);
+    assertEquals("stale", new String(Files.readAllBytes(doc.toPath())));
+  }
+
+  @Test
+  public void testIncrementalInheritedMember() throws Exception {
+    Compiler<JavaDocGenProcessor> compiler = buildCompiler(new JavaDocGenProcessor(), "io.vertx.test.incrementalinherited");
+    File output = new File(compiler.classOutput.getParentFile(), "docs");
+    compiler.setOption("docgen.output", output.getAbsolutePath());
+    compiler.setOption("docgen.incremental", "true");
+    compiler.assertCompile();
+    File doc = new File(output, "io.vertx.test.incrementalinherited.adoc");
+    Files.write(doc.toPath(), "stale".getBytes());
+
+    // The member is declared by TheBase, the linked TheClass is also an input
+    File sub = compiler.sources.stream().filter(f -> f.getName().equals("TheClass.java")).findFirst().get();
+    Files.write(sub.toPath(), new String(Files.readAllBytes(sub.toPath())).replace("{", "{\n  public void other() {}").getBytes());
+    recompile(compiler);
+    assertThat(new String(Files.readAllBytes(doc.toPath())), containsString("TheBase.html#m-java.lang.String-"));
+  }
+
+  @Test
+  public void testIncrementalManifestWithLangOutput() throws Exception {
+    Compiler<JavaDocGenProcessor> compiler = buildCompiler(new JavaDocGenProcessor(), "io.vertx.test.includepkg");
+    File base = compiler.classOutput.getParentFile();
+    compiler.setOption("docgen.output", new File(base, "docs-$lang").getAbsolutePath());
+    compiler.setOption("docgen.incremental", "true");
+    compiler.assertCompile();
+    assertTrue(new File(base, "docs-java/io.vertx.test.includepkg.adoc").isFile());
+    assertTrue(new File(base, ".docgen-manifest").isFile());
+    assertFalse(new File(base, "docs-").exists());
+  }
+
+  @Test
+  public void testWriteIfChanged() throws Exception {
+    Compiler<JavaDocGenProcessor> compiler = buildCompiler(new JavaDocGenProcessor(), "io.vertx.test.includepkg");
+    File output = new File(compiler.classOutput.getParentFile(), "docs");
+    compiler.setOption("docgen.output", output.getAbsolutePath());
+    compiler.assertCompile();
+    Path doc = new File(output, "io.vertx.test.includepkg.adoc").toPath();
+    FileTime time = FileTime.fromMillis(0);
+    Files.setLastModifiedTime(doc, time);
+    recompile(compiler);
+    assertEquals(time, Files.getLastModifiedTime(doc));
+    Files.write(doc, "before_includesub_contentafter_includ_".getBytes());
+    recompile(compiler);
+    assertEquals("before_includesub_contentafter_include", new String(Files.readAllBytes(doc)));
+    assertEquals(Collections.singletonList(doc.getFileName()), Files.list(output.toPath()).map(Path::getFileName).collect(Collectors.toList()));
+  }
+
+  @Test
+  public void testOutputPermissions() throws Exception {
+    assumeTrue(FileSystems.getDefault().supportedFileAttributeViews().contains("posix"));
+    Compiler<JavaDocGenProcessor> compiler = buildCompiler(new JavaDocGenProcessor(), "io.vertx.test.includepkg");
+    File output = new File(compiler.classOutput.getParentFile(), "docs");
+    compiler.setOption("docgen.output", output.getAbsolutePath());
+    compiler.assertCompile();
+    // The output permissions follow the umask like a file created in the same dir
+    Path reference = Files.write(new File(compiler.classOutput.getParentFile(), "reference").toPath(), new byte[0]);
+    Path doc = new File(output, "io.vertx.test.includepkg.adoc").toPath();
+    assertEquals(Files.getPosixFilePermissions(reference), Files.getPosixFilePermissions(doc));
+
+    // A replaced output keeps its permissions
+    Set<PosixFilePermission> permissions = PosixFilePermissions.fromString("rw-r-----");
+    Files.setPosixFilePermissions(doc, permissions);
+    Files.write(doc, "stale".getBytes());
+    recompile(compiler);
+    assertEquals("before_includesub_contentafter_include", new String(Files.readAllBytes(doc)));
+    assertEquals(permissions, Files.getPosixFilePermissions(doc));
+  }
+
+  @Test
+  public void testFailedDocumentIsNotWritten() throws Exception {
+    // The link fails to resolve after the text before it has been streamed to the output
+    Compiler<TestGenProcessor> compiler = buildCompiler(new TestGenProcessor(), "io.vertx.test.unresolvedaftertext");
+    File output = new File(compiler.classOutput.getParentFile(), "docs");
+    compiler.setOption("docgen.output", output.getAbsolutePath());
+    compiler.failCompile();
+    assertTrue(compiler.processor.failures.containsKey("io.vertx.test.unresolvedaftertext"));
+    assertNull(compiler.processor.getDoc("io.vertx.test.unresolvedaftertext"));
+    String[] files = output.list();
+    assertTrue(files == null || files.length == 0);
+  }
+
+  private static Compiler<JavaDocGenProcessor> recompile(Compiler<JavaDocGenProcessor> previous) {
+    Compiler<JavaDocGenProcessor> compiler = new Compiler<>(previous.sources, previous.classOutput, new JavaDocGenProcessor());
+    previous.options.forEach(compiler::setOption);
+    compiler.assertCompile();
+    return compiler;
+  }
+
+  @Test
+  public void testMemoryBudget() throws Exception {
+    for (String parallelism : Arrays.asList("1", "4")) {
+      Compiler<TestGenProcessor> compiler = buildCompiler(new TestGenProcessor(), "io.vertx.test.includepkg");
+      compiler.setOption("docgen.memoryBudget", "0");
+      compiler.setOption("docgen.parallelism", parallelism);
+      compiler.setOption("docgen.verbose", "true");
+      compiler.assertCompile();
+      assertEquals("before_includesub_contentafter_include", compiler.processor.getDoc("io.vertx.test.includepkg"));
+      assertTrue(compiler.diagnostics.getDiagnostics().stream()
+        .map(diagnostic -> diagnostic.getMessage(Locale.ENGLISH))
+        .anyMatch(msg -> msg.startsWith("docgen spill store: 3 chunks spilled")));
+    }
+  }
+
   @Test
   public void testIncludeNonExisting() throws Exception {
     assertTrue(failDoc("io.vertx.test.includenonexisting").containsKey("io.vertx.test.includenonexisting"));
   }
 
+  @Test
+  public void testIncludeNonExistingParallel() throws Exception {
+    Compiler<TestGenProcessor> compiler = buildCompiler(new TestGenProcessor(), "io.vertx.test.includenonexisting");
+    compiler.setOption("docgen.parallelism", "4");
+    compiler.failCompile();
+    assertTrue(compiler.processor.failures.containsKey("io.vertx.test.includenonexisting"));
+  }
+
   @Test
   public void testIncludeCircular() throws Exception {
     assertTrue(failDoc("io.vertx.test.includecircular").containsKey("io.vertx.test.includecircular.sub1"));
@@ -165,6 +344,28 @@ public class BaseProcessorTest {
         "", assertMarkdownDoc("io.vertx.test.linktomethodwithsimpletypename"));
   }
 
+  @Test
+  public void testLinkToInheritedMember() throws Exception {
+    Compiler<TestGenProcessor> compiler = buildCompiler(new TestGenProcessor() {
+      @Override
+      protected String resolveMethodLink(ExecutableElement elt) {
+        return elt.getEnclosingElement().getSimpleName().toString();
+      }
+      @Override
+      protected String resolveFieldLink(VariableElement elt) {
+        return elt.getEnclosingElement().getSimpleName().toString();
+      }
+    }, "io.vertx.test.linktoinheritedmember");
+    compiler.assertCompile();
+    assertEquals(
+      "`link:TheClass[m]`\n" +
+      "`link:TheClass[m]`\n" +
+      "`link:TheBase[m]`\n" +
+      "`link:TheBase[f]`\n" +
+      "`link:TheInterface[i]`\n" +
+      "`link:Object[hashCode]`", compiler.processor.getDoc("io.vertx.test.linktoinheritedmember"));
+  }
+
   @Test
   public void testLinkToMethodWithUnresolvableType() throws Exception {
     assertTrue(failDoc("io.vertx.test.linktomethodwithunresolvabletype").containsKey("io.vertx.test.linktomethodwithunresolvabletype"));
@@ -401,6 +602,41 @@ public class BaseProcessorTest {
         "----"));
   }
 
+  @Test
+  public void testSourceParallel() throws Exception {
+    String expected = assertDocWithCustomGenerator("io.vertx.test.source");
+    Compiler<CustomTestGenProcessor> compiler = buildCompiler(new CustomTestGenProcessor(), "io.vertx.test.source");
+    compiler.setOption("docgen.parallelism", "4");
+    compiler.assertCompile();
+    assertEquals(expected, compiler.processor.getDoc("io.vertx.test.source"));
+  }
+
+  @Test
+  public void testGeneratorsInitOncePerRound() throws Exception {
+    // The workers may render examples with the generators of a round, they are not initialized again for each document
+    AtomicInteger inits = new AtomicInteger();
+    AtomicInteger rounds = new AtomicInteger();
+    Compiler<TestGenProcessor> compiler = buildCompiler(new TestGenProcessor() {
+      @Override
+      protected Iterable<DocGenerator> generators() {
+        inits.incrementAndGet();
+        return super.generators();
+      }
+      @Override
+      public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        if (!roundEnv.processingOver()) {
+          rounds.incrementAndGet();
+        }
+        return super.process(annotations, roundEnv);
+      }
+    }, "io.vertx.test.file");
+    compiler.setOption("docgen.source", docFile("docs/dir").getAbsolutePath());
+    compiler.setOption("docgen.parallelism", "4");
+    compiler.assertCompile();
+    assertEquals(3, compiler.processor.results.size());
+    assertEquals(rounds.get(), inits.get());
+  }
+
   @Test
   public void testLang() throws Exception {
     assertEquals("The $lang is : java", assertDoc("io.vertx.test.lang"));
@@ -479,6 +715,36 @@ public class BaseProcessorTest {
     assertThat(content, not(containsString("This is only displayed for javascript and ruby.")));
   }
 
+  @Test
+  public void testLanguagePostProcessorSkipsOtherLanguages() throws Exception {
+    // The link of the javascript block cannot be resolved, it is not rendered for java
+    Compiler<TestGenProcessor> compiler = buildCompiler(new TestGenProcessor(),
+        "io.vertx.test.postprocessors.languagelinks");
+    compiler.assertCompile();
+    String content = compiler.processor.getDoc("io.vertx.test.postprocessors.languagelinks");
+    assertEquals("java `link:type[TheClass]`\n\n\n\nafter", content);
+  }
+
+  @Test
+  public void testLanguagePostProcessorSkipsOtherLanguagesAfterSource() throws Exception {
+    // The $lang attribute of the source block does not stop the scan of the language blocks
+    Compiler<TestGenProcessor> compiler = buildCompiler(new TestGenProcessor(),
+        "io.vertx.test.postprocessors.languageaftersource");
+    compiler.assertCompile();
+    String content = compiler.processor.getDoc("io.vertx.test.postprocessors.languageaftersource");
+    assertEquals("[source,java]\n----\n`link:type[TheClass]`\n----\n\n\nafter", content);
+  }
+
+  @Test
+  public void testLanguageDeclarationAfterLink() throws Exception {
+    // Not a block declaration once rendered
+    Compiler<TestGenProcessor> compiler = buildCompiler(new TestGenProcessor(),
+        "io.vertx.test.postprocessors.languageafterlink");
+    compiler.assertCompile();
+    String content = compiler.processor.getDoc("io.vertx.test.postprocessors.languageafterlink");
+    assertEquals("`link:type[TheClass]`[language, javascript]\n----\njavascript\n----", content);
+  }
+
   @Test
   public void testMissingPostProcessor() throws Exception {
     Compiler<TestGenProcessor> compiler = buildCompiler(new TestGenProcessor(),
@@ -540,6 +806,69 @@ public class BaseProcessorTest {
     assertThat(content, containsString("`link:type[BaseProcessor]`"));
   }
 
+  @Test
+  public void testPurePostProcessor() throws Exception {
+    AtomicInteger count = new AtomicInteger();
+    AtomicReference<String> version = new AtomicReference<>("1");
+    PostProcessor upper = new PostProcessor() {
+      @Override
+      public String getName() {
+        return "upper";
+      }
+      @Override
+      public boolean isPure() {
+        return true;
+      }
+      @Override
+      public String cacheVersion() {
+        return version.get();
+      }
+      @Override
+      public String process(String name, String content, String... args) {
+        count.incrementAndGet();
+        return content.toUpperCase() + Arrays.toString(args);
+      }
+    };
+    Compiler<TestGenProcessor> compiler = buildCompiler(new TestGenProcessor(), "io.vertx.test.postprocessors.pure");
+    File cache = new File(compiler.classOutput.getParentFile(), "postprocessors.properties");
+    compiler.setOption("docgen.postProcessorCache", cache.getAbsolutePath());
+    compiler.processor.registerPostProcessor(upper);
+    compiler.assertCompile();
+    String expected = "SHARED BLOCK\n[]\n\nSHARED BLOCK\n[]\n\nSHARED BLOCK\n[a]\n\nOTHER BLOCK\n[]";
+    assertEquals(expected, compiler.processor.getDoc("io.vertx.test.postprocessors.pure"));
+    assertEquals(3, count.get());
+    assertTrue(cache.isFile());
+
+    // Cached across builds
+    count.set(0);
+    Compiler<TestGenProcessor> next = new Compiler<>(compiler.sources, compiler.classOutput, new TestGenProcessor());
+    compiler.options.forEach(next::setOption);
+    next.processor.registerPostProcessor(upper);
+    next.assertCompile();
+    assertEquals(expected, next.processor.getDoc("io.vertx.test.postprocessors.pure"));
+    assertEquals(0, count.get());
+
+    // A new version of the post-processor
+    version.set("2");
+    next = new Compiler<>(compiler.sources, compiler.classOutput, new TestGenProcessor());
+    compiler.options.forEach(next::setOption);
+    next.processor.registerPostProcessor(upper);
+    next.assertCompile();
+    assertEquals(expected, next.processor.getDoc("io.vertx.test.postprocessors.pure"));
+    assertEquals(3, count.get());
+
+    // A cache file of another format
+    count.set(0);
+    List<String> lines = Files.readAllLines(cache.toPath());
+    assertTrue(lines.remove("format=2"));
+    Files.write(cache.toPath(), lines);
+    next = new Compiler<>(compiler.sources, compiler.classOutput, new TestGenProcessor());
+    compiler.options.forEach(next::setOption);
+    next.processor.registerPostProcessor(upper);
+    next.assertCompile();
+    assertEquals(3, count.get());
+  }
+
   @Test
   public void testVariableSubstitution() throws Exception {
     Compiler<TestGenProcessor> compiler = buildCompiler(new TestGenProcessor(),
@@ -559,6 +888,75 @@ public class BaseProcessorTest {
     assertThat(processed, not(containsString("not")));
   }
 
+  @Test
+  public void testOverriddenWrite() throws Exception {
+    Map<String, String> written = new HashMap<>();
+    Compiler<TestGenProcessor> compiler = buildCompiler(new TestGenProcessor() {
+      @Override
+      protected void write(DocGenerator generator, Doc doc, String content) {
+        written.put(doc.id(), content);
+      }
+    }, "io.vertx.test.variables");
+    compiler.setOption("foo", "hello");
+    compiler.assertCompile();
+    assertEquals(Collections.singletonMap("io.vertx.test.variables", "hello ${missing} ${baz} ${}"), written);
+    assertNull(compiler.processor.getDoc("io.vertx.test.variables"));
+  }
+
+  @Test
+  public void testOverriddenPostProcessingHooks() throws Exception {
+    Compiler<TestGenProcessor> compiler = buildCompiler(new TestGenProcessor() {
+      @Override
+      public String applyVariableSubstitution(String content) {
+        return super.applyVariableSubstitution(content).replace("${missing}", "found");
+      }
+      @Override
+      protected String applyPostProcessors(String name, String content) {
+        return super.applyPostProcessors(name, content).toUpperCase();
+      }
+    }, "io.vertx.test.variables");
+    compiler.setOption("foo", "hello");
+    compiler.assertCompile();
+    // The document is written with the default write hook
+    assertEquals("HELLO FOUND ${BAZ} ${}", compiler.processor.getDoc("io.vertx.test.variables"));
+  }
+
+  @Test
+  public void testVariableSubstitutionEscape() throws Exception {
+    Compiler<TestGenProcessor> compiler = buildCompiler(new TestGenProcessor(),
+        "io.vertx.test.variables");
+    compiler.setOption("foo", "hello");
+    compiler.assertCompile();
+    assertEquals("${foo} hello $hello ${fohello", compiler.processor.applyVariableSubstitution("\\${foo} ${foo} $${foo} ${fo${foo}"));
+  }
+
+  @Test
+  public void testVariableSubstitutionEscapeUnknown() throws Exception {
+    Compiler<TestGenProcessor> compiler = buildCompiler(new TestGenProcessor(),
+        "io.vertx.test.variables");
+    compiler.setOption("foo", "hello");
+    compiler.setOption("docgen.warnUnknownVariables", "true");
+    compiler.assertCompile();
+    // Only the escape of a variable is removed, shell or Groovy expressions are kept as is
+    assertEquals("echo \\${HOME} ${foo}", compiler.processor.applyVariableSubstitution("echo \\${HOME} \\${foo}"));
+  }
+
+  @Test
+  public void testWarnUnknownVariables() throws Exception {
+    Compiler<TestGenProcessor> compiler = buildCompiler(new TestGenProcessor(),
+        "io.vertx.test.variables");
+    compiler.setOption("foo", "hello");
+    compiler.setOption("baz", "vert.x");
+    compiler.setOption("docgen.warnUnknownVariables", "true");
+    compiler.assertCompile();
+    List<String> warnings = compiler.diagnostics.getDiagnostics().stream()
+        .filter(diagnostic -> diagnostic.getKind() == Diagnostic.Kind.WARNING)
+        .map(diagnostic -> diagnostic.getMessage(Locale.ENGLISH))
+        .filter(msg -> msg.startsWith("Unknown variable"))
+        .collect(Collectors.toList());
+    assertEquals(Collections.singletonList("Unknown variable ${missing}"), warnings);
+  }
+
   @Test
   public void testUnknownTag() throws Exception {
     assertEquals("" +
@@ -597,6 +995,11 @@ public class BaseProcessorTest {
     assertEquals("<before>`link:type[the label value]`<after>", assertDocFile("docs/linkwithlabel.adoc").getDoc("linkwithlabel.adoc"));
   }
 
+  @Test
+  public void testDocFileLanguageBlocks() throws Exception {
+    assertEquals("Caf\u00e9 `link:type[TheClass]`\n\n`link:method[the label value]`\n", assertDocFile("docs/language.adoc").getDoc("language.adoc"));
+  }
+
   @Test
   public void testDocFileLinkWithLang() throws Exception {
     assertEquals("The $lang is : java", assertDocFile("docs/lang.adoc").getDoc("lang.adoc"));
@@ -684,6 +1087,75 @@ public class BaseProcessorTest {
     assertEquals("daa_content", processor.getDoc("juu/daa.adoc"));
   }
 
+  @Test
+  public void testDocDirSkipsTemporaryAndBinaryFiles() throws Exception {
+    TestGenProcessor processor = assertDocFile("docs/filtered");
+    assertEquals(new HashSet<>(Arrays.asList("a.adoc", "sub/b.adoc", "sub/c.txt")), processor.results.keySet());
+    assertEquals("a_content", processor.getDoc("a.adoc"));
+  }
+
+  @Test
+  public void testDocGlob() throws Exception {
+    Compiler<TestGenProcessor> compiler = buildCompiler(new TestGenProcessor(),  "io.vertx.test.file");
+    compiler.setOption("docgen.source", docFile("docs/filtered").getAbsolutePath() + "/**/*.adoc");
+    compiler.assertCompile();
+    assertEquals(new HashSet<>(Arrays.asList("a.adoc", "sub/b.adoc")), compiler.processor.results.keySet());
+    assertEquals("b_content", compiler.processor.getDoc("sub/b.adoc"));
+  }
+
+  @Test
+  public void testDocGlobWalksMatchedDirs() throws Exception {
+    // A single segment glob walks the dirs it matches, like a dir source
+    Compiler<TestGenProcessor> compiler = buildCompiler(new TestGenProcessor(),  "io.vertx.test.file");
+    compiler.setOption("docgen.source", docFile("docs/filtered").getAbsolutePath() + "/*");
+    compiler.assertCompile();
+    assertEquals(new HashSet<>(Arrays.asList("a.adoc", "b.adoc", "c.txt")), compiler.processor.results.keySet());
+    assertEquals("b_content", compiler.processor.getDoc("b.adoc"));
+  }
+
+  @Test
+  public void testDocGlobNotFound() throws Exception {
+    Compiler<TestGenProcessor> compiler = buildCompiler(new TestGenProcessor(),  "io.vertx.test.file");
+    compiler.setOption("docgen.source", docFile("docs").getAbsolutePath() + "/does_not_exists/**/*.adoc");
+    compiler.failCompile();
+    assertTrue(compiler.diagnostics.getDiagnostics().stream()
+      .map(diagnostic -> diagnostic.getMessage(Locale.ENGLISH))
+      .anyMatch(msg -> msg.startsWith("Cannot process document")));
+  }
+
+  @Test
+  public void testDocIncludeExclude() throws Exception {
+    Compiler<TestGenProcessor> compiler = buildCompiler(new TestGenProcessor(),  "io.vertx.test.file");
+    compiler.setOption("docgen.source", docFile("docs/filtered").getAbsolutePath());
+    compiler.setOption("docgen.include", "**/*.adoc, **/*.txt");
+    compiler.setOption("docgen.exclude", "sub/*.adoc");
+    compiler.assertCompile();
+    assertEquals(new HashSet<>(Arrays.asList("a.adoc", "sub/c.txt")), compiler.processor.results.keySet());
+  }
+
+  @Test
+  public void testMetrics() throws Exception {
+    Compiler<JavaDocGenProcessor> compiler = buildCompiler(new JavaDocGenProcessor(), "io.vertx.test.source");
+    File output = new File(compiler.classOutput.getParentFile(), "docs");
+    File metrics = new File(compiler.classOutput.getParentFile(), "metrics/docgen.json");
+    compiler.setOption("docgen.output", output.getAbsolutePath());
+    compiler.setOption("docgen.metrics", metrics.getAbsolutePath());
+    compiler.assertCompile();
+    String report = new String(Files.readAllBytes(metrics.toPath()), StandardCharsets.UTF_8);
+    for (String phase : Arrays.asList("scan", "resolve", "link", "renderSource", "postProcess", "write")) {
+      assertTrue("Missing " + phase + " in " + report, report.contains("\"" + phase + "\": {\"count\":"));
+    }
+    assertTrue(report.contains("\"discovery\": {\"count\":0,"));
+    assertTrue(report.contains("\"generators\": {\n    \"java\": {\"scan\": {\"count\":1,"));
+    assertTrue(report.contains("\"documents\": {\n    \"io.vertx.test.source\": {\"scan\": {\"count\":1,"));
+    // The resolutions are accounted to the document linking to the elements
+    String docReport = report.substring(report.indexOf("\"io.vertx.test.source\": {"));
+    docReport = docReport.substring(0, docReport.indexOf('\n'));
+    assertTrue(docReport, docReport.contains("\"resolve\": {\"count\":"));
+    assertTrue(docReport, docReport.contains("\"link\": {\"count\":"));
+    assertTrue(report.contains("\"writtenFiles\": 1"));
+  }
+
   @Test
   public void testGen() throws Exception {
 
@@ -718,6 +1190,41 @@ public class BaseProcessorTest {
 
   }
 
+  @Test
+  public void testEarlyFlush() throws Exception {
+    Compiler<TestGenProcessor> compiler = buildCompiler(new TestGenProcessor(), "io.vertx.test.earlyflush");
+    compiler.setOption("docgen.earlyFlush", "true");
+    AtomicInteger count = new AtomicInteger();
+    List<String> flushed = new ArrayList<>();
+    AbstractProcessor proc = new AbstractProcessor() {
+      @Override
+      public Set<String> getSupportedAnnotationTypes() {
+        return Collections.singleton("*");
+      }
+      @Override
+      public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        if (count.getAndIncrement() == 0) {
+          // The documents written by the first round
+          flushed.addAll(new TreeSet<>(compiler.processor.results.keySet()));
+          try {
+            JavaFileObject src = processingEnv.getFiler().createSourceFile("io.vertx.test.earlyflush.GeneratedClass");
+            try (Writer writer = src.openWriter()) {
+              writer.append("package io.vertx.test.earlyflush;\npublic class GeneratedClass {\n}");
+            }
+          } catch (IOException e) {
+            throw new AssertionError(e);
+          }
+        }
+        return true;
+      }
+    };
+    compiler.addProcessor(proc);
+    compiler.assertCompile();
+    assertEquals(Collections.singletonList("io.vertx.test.earlyflush.resolved"), flushed);
+    assertEquals("`link:type[TheClass]`", compiler.processor.getDoc("io.vertx.test.earlyflush.resolved"));
+    assertEquals("`link:type[GeneratedClass]`", compiler.processor.getDoc("io.vertx.test.earlyflush.pending"));
+  }
+
   private File docFile(String relativeName) throws Exception {
     URL resource = BaseProcessorTest.class.getClassLoader().getResource(relativeName);
     assertNotNull(resource);
@@ -1,14 +1,15 @@
 package io.vertx.tests;
 
 import io.vertx.docgen.processor.impl.DocGenerator;
+import io.vertx.docgen.processor.impl.DocOutput;
 import io.vertx.docgen.processor.impl.JavaDocGenerator;
 import io.vertx.docgen.processor.JavaDocGenProcessor;
 
 import javax.lang.model.element.ExecutableElement;
 import javax.lang.model.element.TypeElement;
 import javax.lang.model.element.VariableElement;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * A custom processor.
@@ -16,7 +17,7 @@ import java.util.Map;
  */
 public class CustomTestGenProcessor extends JavaDocGenProcessor {
 
-  Map<String, String> results = new HashMap<>();
+  Map<String, String> results = new ConcurrentHashMap<>();
 
   @Override
   protected DocGenerator generator() {
@@ -69,8 +70,21 @@ public class CustomTestGenProcessor extends JavaDocGenProcessor {
   }
 
   @Override
-  protected void write(DocGenerator generator, Doc doc, String content) {
-    results.put(doc.id(), content);
+  protected DocOutput openWriter(DocGenerator generator, Doc doc) {
+    StringBuilder buffer = new StringBuilder();
+    return new DocOutput() {
+      @Override
+      public void write(char[] cbuf, int off, int len) {
+        buffer.append(cbuf, off, len);
+      }
+      @Override
+      public void commit() {
+        results.put(doc.id(), buffer.toString());
+      }
+      @Override
+      public void abort() {
+      }
+    };
   }
 
   public String getDoc(String name) {
@@ -60,6 +60,37 @@ public class DocWriterTest {
     assertEquals("", writer.render());
   }
 
+  @Test
+  public void testDeepFuture() throws IOException {
+    DocWriter writer = new DocWriter();
+    DocWriter current = writer;
+    for (int i = 0;i < 100000;i++) {
+      DocWriter next = new DocWriter();
+      current.write("a");
+      current.write(() -> next);
+      current.write("b");
+      current = next;
+    }
+    StringBuilder out = new StringBuilder("c");
+    writer.render(out);
+    assertEquals(200001, out.length());
+    assertTrue(out.toString().startsWith("caaa"));
+    assertTrue(out.toString().endsWith("bbb"));
+  }
+
+  @Test
+  public void testSharedFuture() throws IOException {
+    DocWriter shared = new DocWriter();
+    shared.write("b");
+    DocWriter writer = new DocWriter();
+    writer.write("a");
+    writer.write(() -> shared);
+    writer.write(() -> shared);
+    writer.write("c");
+    assertEquals("abbc", writer.render());
+    assertEquals("b", shared.render());
+  }
+
   @Test
   public void testExec() throws IOException {
     DocWriter writer = new DocWriter();
@@ -79,6 +110,32 @@ public class DocWriterTest {
     assertEquals("abc\ndef ghi", writer.render());
   }
 
+  @Test
+  public void testWriteRange() throws IOException {
+    DocWriter writer = new DocWriter();
+    writer.write("xxabc\n defxx".toCharArray(), 2, 8);
+    writer.write("xx\n ghixx", 2, 5);
+    writer.append("xx\n jklxx", 2, 7);
+    assertEquals("abc\ndef\nghi\njkl", writer.render());
+    writer.literalMode();
+    writer.write("xxabc\n defxx".toCharArray(), 2, 8);
+    writer.write("xx\n ghixx", 2, 5);
+    writer.append("xx\n jklxx", 2, 7);
+    assertEquals("abc\n def\n ghi\n jkl", writer.render());
+  }
+
+  @Test
+  public void testCommentSplitWrites() throws IOException {
+    DocWriter writer = new DocWriter();
+    writer.write("abc\n");
+    writer.write(" def\n");
+    writer.write(' ');
+    writer.write(' ');
+    writer.append('g');
+    writer.write("\n\n  hi");
+    assertEquals("abc\ndef\n g\n\n hi", writer.render());
+  }
+
   private void assertCommentText(String actual, String expected) throws IOException {
     DocWriter writer = new DocWriter();
     writer.write(actual);
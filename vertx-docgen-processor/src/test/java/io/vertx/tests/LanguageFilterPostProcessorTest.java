@@ -44,6 +44,14 @@ public class LanguageFilterPostProcessorTest {
     assertThat(result, containsString(content));
   }
 
+  @Test
+  public void testStreaming() throws Exception {
+    StringBuilder out = new StringBuilder("before");
+    postProcessor.process("java", new StringBuilder("java_content"), out, "java", "ruby");
+    postProcessor.process("java", new StringBuilder("ruby_content"), out, "ruby");
+    assertEquals("beforejava_content", out.toString());
+  }
+
   @Test(expected = IllegalArgumentException.class)
   public void testWithNoArgs() {
     String content = "";
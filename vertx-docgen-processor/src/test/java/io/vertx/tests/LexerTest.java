@@ -0,0 +1,145 @@
+package io.vertx.tests;
+
+import io.vertx.docgen.processor.impl.Lexer;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.*;
+
+/**
+ * Check that {@link Lexer} matches like the regular expressions it replaces.
+ */
+public class LexerTest {
+
+  private static final Pattern LANG_PATTERN = Pattern.compile("(\\\\)?\\$lang");
+  private static final Pattern LINK_PATTERN = Pattern.compile("\\{@link\\s([^}]+)\\}");
+  private static final Pattern METHOD_LINK_PATTERN = Pattern.compile(
+    "^([$_\\w]+\\.)*[$_\\w]+" +
+      "(?:" +
+      "#[$_\\w]+" +
+      "(?:(?:\\([^)]*)\\)|$|(?= ))" +
+      ")?");
+  private static final Pattern MEMBER_PATTERN = Pattern.compile("#(\\p{javaJavaIdentifierStart}(?:\\p{javaJavaIdentifierPart})*)(?:\\((.*)\\))?$");
+  private static final Pattern BLOCK_DECLARATION = Pattern.compile("\\[.+\\]");
+
+  private static final String[] TOKENS = {
+    "$lang", "\\$lang", "\\", "$", "lang", "{@link", "{@link ", "}", "{", "@", "#", "(", ")", ".", ",", " ", "\t",
+    "\n", "\r", "\r\n", "\u0085", "\u2028", "\u2029", "[", "]", "----", "\\----", "a", "Foo", "m1", "_", "0", "java.lang.String",
+    "\u00e9", "\uD801\uDC00", "\u0000"
+  };
+
+  @Test
+  public void testLang() {
+    assertEquals(langTokens("$lang"), langTokens(LANG_PATTERN, "$lang"));
+    assertEquals(langTokens("\\$lang"), langTokens(LANG_PATTERN, "\\$lang"));
+    assertEquals(langTokens("\\\\$lang$lang$language"), langTokens(LANG_PATTERN, "\\\\$lang$lang$language"));
+    Random random = new Random(0);
+    for (int i = 0;i < 20000;i++) {
+      String s = randomString(random);
+      assertEquals(s, langTokens(LANG_PATTERN, s), langTokens(s));
+    }
+  }
+
+  @Test
+  public void testLink() {
+    Random random = new Random(1);
+    for (int i = 0;i < 20000;i++) {
+      String s = randomString(random);
+      assertEquals(s, linkTokens(LINK_PATTERN, s), linkTokens(s));
+    }
+  }
+
+  @Test
+  public void testSignature() {
+    assertEquals(3, Lexer.signatureEnd("a.b.", 0, 4));
+    assertEquals(13, Lexer.signatureEnd("io.Foo#m(int) label", 0, 19));
+    Random random = new Random(2);
+    for (int i = 0;i < 20000;i++) {
+      String s = randomString(random);
+      Matcher matcher = METHOD_LINK_PATTERN.matcher(s);
+      assertEquals(s, matcher.find() ? matcher.end() : -1, Lexer.signatureEnd(s, 0, s.length()));
+    }
+  }
+
+  @Test
+  public void testMember() {
+    Random random = new Random(3);
+    for (int i = 0;i < 20000;i++) {
+      String s = randomString(random);
+      Matcher matcher = MEMBER_PATTERN.matcher(s);
+      int member = Lexer.findMember(s);
+      if (matcher.find()) {
+        assertEquals(s, matcher.start(), member);
+        int nameEnd = Lexer.memberNameEnd(s, member);
+        assertEquals(s, matcher.group(1), s.substring(member + 1, nameEnd));
+        int parametersEnd = Lexer.parametersEnd(s, nameEnd);
+        assertEquals(s, matcher.group(2), parametersEnd == -1 ? null : s.substring(nameEnd + 1, parametersEnd));
+      } else {
+        assertEquals(s, -1, member);
+      }
+    }
+  }
+
+  @Test
+  public void testBlockDeclaration() {
+    Random random = new Random(4);
+    for (int i = 0;i < 20000;i++) {
+      String s = "[" + randomString(random) + (random.nextBoolean() ? "]" : "");
+      assertEquals(s, BLOCK_DECLARATION.matcher(s).matches(), Lexer.isBlockDeclaration(s));
+    }
+  }
+
+  private static String randomString(Random random) {
+    StringBuilder sb = new StringBuilder();
+    int len = random.nextInt(12);
+    for (int i = 0;i < len;i++) {
+      sb.append(TOKENS[random.nextInt(TOKENS.length)]);
+    }
+    return sb.toString();
+  }
+
+  private static List<String> langTokens(Pattern pattern, String s) {
+    List<String> tokens = new ArrayList<>();
+    Matcher matcher = pattern.matcher(s);
+    while (matcher.find()) {
+      tokens.add(matcher.start() + ":" + matcher.end() + ":" + (matcher.group(1) != null));
+    }
+    return tokens;
+  }
+
+  private static List<String> langTokens(String s) {
+    List<String> tokens = new ArrayList<>();
+    int start = 0;
+    while ((start = Lexer.findLang(s, start)) != -1) {
+      int end = Lexer.langEnd(s, start);
+      tokens.add(start + ":" + end + ":" + Lexer.isEscapedLang(s, start));
+      start = end;
+    }
+    return tokens;
+  }
+
+  private static List<String> linkTokens(Pattern pattern, String s) {
+    List<String> tokens = new ArrayList<>();
+    Matcher matcher = pattern.matcher(s);
+    while (matcher.find()) {
+      tokens.add(matcher.start() + ":" + matcher.end() + ":" + matcher.group(1));
+    }
+    return tokens;
+  }
+
+  private static List<String> linkTokens(String s) {
+    List<String> tokens = new ArrayList<>();
+    int start = 0;
+    while ((start = Lexer.findLink(s, start)) != -1) {
+      int end = Lexer.linkEnd(s, start);
+      tokens.add(start + ":" + end + ":" + s.substring(Lexer.linkValueStart(start), end - 1));
+      start = end;
+    }
+    return tokens;
+  }
+}
@@ -52,6 +52,23 @@ public class PostProcessorTest {
   }
 
 
+  @Test
+  public void testStreamingAdapter() throws Exception {
+    PostProcessor postProcessor = new PostProcessor() {
+      @Override
+      public String getName() {
+        return "upper";
+      }
+      @Override
+      public String process(String name, String content, String... args) {
+        return content.toUpperCase() + args.length;
+      }
+    };
+    StringBuilder out = new StringBuilder();
+    postProcessor.process("java", new StringBuilder("abc"), out, "a", "b");
+    assertThat(out.toString(), equalTo("ABC2"));
+  }
+
   @Test
   public void testContentExtractionWithSingleLineBlock() {
     List<String> lines = Arrays.asList(
@@ -1,21 +1,23 @@
 package io.vertx.tests;
 
 import io.vertx.docgen.processor.impl.DocGenerator;
+import io.vertx.docgen.processor.impl.DocOutput;
 import io.vertx.docgen.processor.impl.JavaDocGenerator;
 import io.vertx.docgen.processor.JavaDocGenProcessor;
 
 import javax.lang.model.element.ExecutableElement;
 import javax.lang.model.element.TypeElement;
 import javax.lang.model.element.VariableElement;
-import java.util.HashMap;
+import java.io.IOException;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * @author <a href="mailto:julien@julienviet.com">Julien Viet</a>
  */
 public class TestGenProcessor extends JavaDocGenProcessor {
 
-  Map<String, String> results = new HashMap<>();
+  Map<String, String> results = new ConcurrentHashMap<>();
 
   @Override
   protected DocGenerator generator() {
@@ -81,9 +83,25 @@ public class TestGenProcessor extends JavaDocGenProcessor {
   }
 
   @Override
-  protected void write(DocGenerator generator, Doc doc, String content) {
-    results.put(doc.id(), content);
-    super.write(generator, doc, content);
+  protected DocOutput openWriter(DocGenerator generator, Doc doc) {
+    StringBuilder buffer = new StringBuilder();
+    return new DocOutput() {
+      @Override
+      public void write(char[] cbuf, int off, int len) {
+        buffer.append(cbuf, off, len);
+      }
+      @Override
+      public void commit() throws IOException {
+        String content = buffer.toString();
+        results.put(doc.id(), content);
+        DocOutput out = TestGenProcessor.super.openWriter(generator, doc);
+        out.write(content);
+        out.commit();
+      }
+      @Override
+      public void abort() {
+      }
+    };
   }
 
   public String getDoc(String name) {